@@ -0,0 +1,52 @@
+package com.tds.flagquiz;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import android.os.Bundle;
+import android.widget.TextView;
+
+import com.google.android.material.button.MaterialButton;
+
+/**
+ * Debug builds only: shows the next-to-interactive percentiles kept by {@link RenderLatencyStore},
+ * so a jank regression shows up after a few quizzes on a low-end device.
+ */
+public class RenderLatencyActivity extends AppCompatActivity {
+
+    private TextView tvSamples, tvP50, tvP95, tvP99, tvMax;
+    private RenderLatencyStore renderLatencyStore;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_render_latency);
+
+        tvSamples = findViewById(R.id.latency_samples);
+        tvP50 = findViewById(R.id.latency_p50);
+        tvP95 = findViewById(R.id.latency_p95);
+        tvP99 = findViewById(R.id.latency_p99);
+        tvMax = findViewById(R.id.latency_max);
+        renderLatencyStore = RenderLatencyStore.getInstance(this);
+
+        MaterialButton resetButton = findViewById(R.id.latency_reset_button);
+        resetButton.setOnClickListener(v -> {
+            renderLatencyStore.resetAsync();
+            showLatencies();
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showLatencies(); // Pick up the quizzes played since this screen was last shown
+    }
+
+    private void showLatencies() {
+        LatencyHistogram histogram = renderLatencyStore.snapshot();
+        tvSamples.setText(getString(R.string.render_latency_samples_format, histogram.getCount()));
+        tvP50.setText(getString(R.string.render_latency_quantile_format, "p50", histogram.getQuantileMicros(0.50) / 1000.0));
+        tvP95.setText(getString(R.string.render_latency_quantile_format, "p95", histogram.getQuantileMicros(0.95) / 1000.0));
+        tvP99.setText(getString(R.string.render_latency_quantile_format, "p99", histogram.getQuantileMicros(0.99) / 1000.0));
+        tvMax.setText(getString(R.string.render_latency_quantile_format, "max", histogram.getMaxMicros() / 1000.0));
+    }
+}
@@ -0,0 +1,34 @@
+package com.tds.flagquiz;
+
+/**
+ * The app's one background pool for loading flag data and decoding flags. Activities and
+ * ViewModels submit to it instead of creating executors of their own, so no threads are started
+ * or torn down as screens come and go.
+ * <p>
+ * Writers that depend on strict ordering (FlagStatsStore, the Tracing dump) keep their own
+ * single thread.
+ */
+final class AppExecutors {
+
+    // One for the database or the warm-up, one for decoding flags alongside it
+    private static final int BACKGROUND_THREADS = 2;
+
+    private static volatile PriorityExecutor background;
+
+    private AppExecutors() {
+    }
+
+    static PriorityExecutor background() {
+        PriorityExecutor executor = background;
+        if (executor == null) {
+            synchronized (AppExecutors.class) {
+                executor = background;
+                if (executor == null) {
+                    executor = new PriorityExecutor("flagquiz-bg", BACKGROUND_THREADS);
+                    background = executor;
+                }
+            }
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,253 @@
+package com.tds.flagquiz;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Installs a database bundled in assets into the app's database directory.
+ * <p>
+ * The copy streams through NIO channels straight from the uncompressed asset, lands in a
+ * temp file that is synced and then renamed over the live file, so a killed process can never
+ * leave a half-written database behind. A small marker file records the schema version and
+ * the SHA-256 of the installed asset, so the copy only happens again when the bundled database
+ * actually changes. Callers in this and other processes are serialised with a file lock.
+ */
+public final class AssetDatabaseInstaller {
+
+    private static final String TAG = "AssetDbInstaller";
+
+    private static final String MARKER_SUFFIX = ".installed";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String LOCK_SUFFIX = ".lock";
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    // FileLock is held per process, so threads of this process also need an in-memory lock
+    private static final Object INSTALL_LOCK = new Object();
+
+    private final Context context;
+    private final String assetName;
+    private final String installedName;
+    private final int version;
+    private final File target;
+
+    /**
+     * @param assetName Name of the database in assets; also the name it is installed under.
+     * @param version   Schema version of the bundled database. A different installed version forces a copy.
+     */
+    public AssetDatabaseInstaller(Context context, String assetName, int version) {
+        this(context, assetName, assetName, version);
+    }
+
+    /**
+     * @param installedName File name in the database directory, for an asset in a sub-directory of assets.
+     */
+    public AssetDatabaseInstaller(Context context, String assetName, String installedName, int version) {
+        this.context = context.getApplicationContext();
+        this.assetName = assetName;
+        this.installedName = installedName;
+        this.version = version;
+        this.target = this.context.getDatabasePath(installedName);
+    }
+
+    public File getTarget() {
+        return target;
+    }
+
+    /**
+     * Makes sure the installed database matches the bundled one, copying it if not.
+     * Blocking; call off the main thread.
+     *
+     * @return true if the database was copied, false if the installed one was already current.
+     */
+    public boolean install() throws IOException {
+        File dir = target.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create database directory " + dir);
+        }
+
+        synchronized (INSTALL_LOCK) {
+            try (FileOutputStream lockStream = new FileOutputStream(new File(dir, installedName + LOCK_SUFFIX));
+                 FileLock ignored = lockStream.getChannel().lock()) {
+                return installLocked();
+            }
+        }
+    }
+
+    private boolean installLocked() throws IOException {
+        File markerFile = new File(target.getPath() + MARKER_SUFFIX);
+        Marker installed = Marker.read(markerFile);
+        long appUpdateTime = appLastUpdateTime();
+
+        // Fast path: same app install and schema as the last check, nothing in assets can have changed
+        if (installed != null && installed.version == version && installed.appUpdateTime == appUpdateTime
+                && target.isFile()) {
+            Tracing.count(Tracing.ASSET_COPY_SKIPPED);
+            return false;
+        }
+
+        // The app was installed or updated: only copy if the bundled bytes really differ
+        String bundledHash = hashAsset();
+        if (installed != null && installed.version == version && installed.sha256.equals(bundledHash)
+                && target.isFile()) {
+            new Marker(version, bundledHash, appUpdateTime).write(markerFile);
+            Log.i(TAG, assetName + " unchanged in this app version, keeping installed copy.");
+            Tracing.count(Tracing.ASSET_COPY_SKIPPED);
+            return false;
+        }
+
+        Log.i(TAG, "Installing " + assetName + " (version " + version + ") from assets...");
+        File temp = new File(target.getPath() + TEMP_SUFFIX);
+        long start = Tracing.begin("AssetDatabaseInstaller.copy");
+        try {
+            copyAsset(temp);
+            if (!temp.renameTo(target)) {
+                throw new IOException("Cannot move " + temp + " to " + target);
+            }
+        } finally {
+            Tracing.end(Tracing.ASSET_COPY, start);
+            if (temp.exists() && !temp.delete()) {
+                Log.w(TAG, "Could not delete temp file " + temp);
+            }
+        }
+        // A rollback journal from the replaced file must not be applied to the new one
+        deleteIfExists(new File(target.getPath() + "-journal"));
+        new Marker(version, bundledHash, appUpdateTime).write(markerFile);
+        Log.i(TAG, assetName + " installed.");
+        return true;
+    }
+
+    private void copyAsset(File destination) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(destination);
+             FileChannel outChannel = out.getChannel()) {
+            try (AssetFileDescriptor afd = context.getAssets().openFd(assetName);
+                 FileInputStream in = new FileInputStream(afd.getFileDescriptor());
+                 FileChannel inChannel = in.getChannel()) {
+                // Uncompressed asset: copy the byte range of the APK directly, kernel to kernel
+                long offset = afd.getStartOffset();
+                long remaining = afd.getLength();
+                while (remaining > 0) {
+                    long copied = inChannel.transferTo(offset, remaining, outChannel);
+                    if (copied <= 0) {
+                        throw new IOException("Unexpected end of asset " + assetName);
+                    }
+                    offset += copied;
+                    remaining -= copied;
+                }
+            } catch (FileNotFoundException compressed) {
+                // openFd only works for assets stored uncompressed; fall back to the inflating stream
+                try (InputStream in = context.getAssets().open(assetName);
+                     ReadableByteChannel inChannel = Channels.newChannel(in)) {
+                    long position = 0;
+                    long copied;
+                    while ((copied = outChannel.transferFrom(inChannel, position, BUFFER_BYTES)) > 0) {
+                        position += copied;
+                    }
+                }
+            }
+            outChannel.force(true); // Data must be on disk before the rename makes it live
+        }
+    }
+
+    private String hashAsset() throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 not available", e);
+        }
+        try (InputStream in = context.getAssets().open(assetName);
+             ReadableByteChannel channel = Channels.newChannel(in)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private long appLastUpdateTime() {
+        try {
+            return context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            return -1; // Never matches a recorded time, so the hash check decides
+        }
+    }
+
+    private static void deleteIfExists(File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Could not delete " + file);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * What was installed: "version sha256 appUpdateTime" on a single line.
+     */
+    private static final class Marker {
+        final int version;
+        final String sha256;
+        final long appUpdateTime;
+
+        Marker(int version, String sha256, long appUpdateTime) {
+            this.version = version;
+            this.sha256 = sha256;
+            this.appUpdateTime = appUpdateTime;
+        }
+
+        static Marker read(File file) {
+            if (!file.isFile()) {
+                return null;
+            }
+            try (FileInputStream in = new FileInputStream(file)) {
+                byte[] bytes = new byte[(int) Math.min(file.length(), 256)];
+                int length = in.read(bytes);
+                String[] parts = new String(bytes, 0, Math.max(length, 0), StandardCharsets.US_ASCII).trim().split(" ");
+                if (parts.length != 3) {
+                    return null;
+                }
+                return new Marker(Integer.parseInt(parts[0]), parts[1], Long.parseLong(parts[2]));
+            } catch (IOException | NumberFormatException e) {
+                Log.w(TAG, "Ignoring unreadable install marker " + file, e);
+                return null;
+            }
+        }
+
+        // Written through a temp file and rename as well, so a torn write reads as "no marker"
+        void write(File file) throws IOException {
+            File temp = new File(file.getPath() + TEMP_SUFFIX);
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                out.write((version + " " + sha256 + " " + appUpdateTime).getBytes(StandardCharsets.US_ASCII));
+                out.getFD().sync();
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("Cannot move " + temp + " to " + file);
+            }
+        }
+    }
+}
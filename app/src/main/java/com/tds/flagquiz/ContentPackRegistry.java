@@ -0,0 +1,124 @@
+package com.tds.flagquiz;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The content packs on offer, read from the pack manifest in assets, and their installation.
+ * <p>
+ * Only the manifest is read up front; it is a few lines. A pack's database is copied out of
+ * assets the first time its flags are needed, by the same installer as the bundled database,
+ * so packs nobody selected are never copied or opened.
+ */
+public final class ContentPackRegistry {
+
+    private static final String TAG = "ContentPackRegistry";
+
+    private static volatile ContentPackRegistry instance;
+
+    private final Context appContext;
+    private volatile List<ContentPack> packs; // Read on first use
+
+    public static ContentPackRegistry getInstance(Context context) {
+        ContentPackRegistry registry = instance;
+        if (registry == null) {
+            synchronized (ContentPackRegistry.class) {
+                registry = instance;
+                if (registry == null) {
+                    registry = new ContentPackRegistry(context.getApplicationContext());
+                    instance = registry;
+                }
+            }
+        }
+        return registry;
+    }
+
+    private ContentPackRegistry(Context appContext) {
+        this.appContext = appContext;
+    }
+
+    /**
+     * Returns the packs listed in the manifest, reading it on first use, so call it off the main
+     * thread. Empty if the manifest is missing or malformed.
+     */
+    public List<ContentPack> getAvailablePacks() {
+        List<ContentPack> loaded = packs;
+        if (loaded == null) {
+            synchronized (this) {
+                loaded = packs;
+                if (loaded == null) {
+                    loaded = readManifest();
+                    packs = loaded;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * @return The pack with id {@code packId}, or null if the manifest does not list it.
+     */
+    public ContentPack getPack(int packId) {
+        for (ContentPack pack : getAvailablePacks()) {
+            if (pack.getId() == packId) {
+                return pack;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The listed packs whose names are in {@code names}, in manifest order.
+     */
+    public List<ContentPack> getPacks(Set<String> names) {
+        List<ContentPack> selected = new ArrayList<>();
+        if (names.isEmpty()) {
+            return selected;
+        }
+        for (ContentPack pack : getAvailablePacks()) {
+            if (names.contains(pack.getName())) {
+                selected.add(pack);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Copies the pack's database out of assets unless the installed copy is current.
+     * Blocking; call off the main thread.
+     *
+     * @return The installed database file.
+     */
+    public File install(ContentPack pack) throws IOException {
+        AssetDatabaseInstaller installer = new AssetDatabaseInstaller(appContext,
+                pack.getDatabaseAssetName(), pack.getInstalledDatabaseName(), pack.getVersion());
+        installer.install();
+        return installer.getTarget();
+    }
+
+    private List<ContentPack> readManifest() {
+        try (Reader reader = new InputStreamReader(
+                appContext.getAssets().open(ContentPack.MANIFEST_ASSET_NAME), StandardCharsets.UTF_8)) {
+            List<ContentPack> read = Collections.unmodifiableList(ContentPack.readManifest(reader));
+            Log.d(TAG, "Pack manifest lists " + read.size() + " packs.");
+            return read;
+        } catch (FileNotFoundException e) {
+            Log.d(TAG, "No pack manifest, no content packs.");
+            return Collections.emptyList();
+        } catch (IOException e) {
+            Log.e(TAG, "Pack manifest unreadable, no content packs", e);
+            return Collections.emptyList();
+        }
+    }
+}
@@ -1,115 +1,79 @@
 package com.tds.flagquiz;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.util.Log;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 
 public class DatabaseCopyHelper extends SQLiteOpenHelper {
 
     private static final String TAG = "DatabaseCopyHelper"; // For logging
     private static final String DB_NAME = "flagquizdb.db";
-    private static final int DB_VERSION = 1; // Start with version 1
+    private static final int DB_VERSION = FlagsSchema.VERSION; // Kept in step with the bundled DB's user_version
+    private static final long MMAP_SIZE_BYTES = 8L * 1024 * 1024;
+    private static final int CACHE_SIZE_KIB = 2048;
 
-    private final Context myContext;
+    private final AssetDatabaseInstaller installer;
     private final String dbPath;
     private SQLiteDatabase myDataBase;
 
     public DatabaseCopyHelper(Context context) {
         super(context, DB_NAME, null, DB_VERSION);
-        this.myContext = context;
-        // More robust way to get the database path
-        this.dbPath = context.getDatabasePath(DB_NAME).getPath();
+        this.installer = new AssetDatabaseInstaller(context, DB_NAME, DB_VERSION);
+        this.dbPath = installer.getTarget().getPath();
     }
 
     /**
-     * Creates the database if it doesn't exist by copying from assets.
+     * Installs the database from assets if the installed copy is missing or out of date, then opens it.
      * This method should be called before attempting to open or use the database.
      */
     public void createAndOpenDatabase() throws IOException, SQLException {
-        boolean dbExist = checkDataBaseExists();
-
-        if (!dbExist) {
-            Log.i(TAG, "Database does not exist. Copying from assets...");
-            // By calling this method, an empty database will be created into the default system path
-            // of your application so we are gonna be able to overwrite that database with our database.
-            // This also ensures the databases directory is created.
-            try {
-                getReadableDatabase(); // Create an empty DB that SQLiteOpenHelper knows about
-                close(); // Close the empty DB before overwriting.
-                // SQLiteOpenHelper opens a handle when getReadableDatabase or getWritableDatabase is called.
-                // We need to close this handle before attempting to overwrite the file.
-            } catch (SQLiteException e) {
-                // This might happen if the disk is full or other low-level issues.
-                throw new IOException("Failed to create empty database structure.", e);
-            }
-
-
-            try {
-                copyDataBaseFromAssets();
-                Log.i(TAG, "Database copied successfully.");
-            } catch (IOException e) {
-                // If copy fails, attempt to delete the partially created or empty database file
-                // to avoid issues on next attempt.
-                File dbFile = new File(dbPath);
-                if (dbFile.exists()) {
-                    dbFile.delete();
-                }
-                throw new IOException("Error copying database from assets: " + e.getMessage(), e);
-            }
-        } else {
-            Log.i(TAG, "Database already exists.");
-        }
+        // The installer re-copies whenever the bundled DB or its schema version changes, so the
+        // installed file always matches FlagsSchema.VERSION and needs no migration here.
+        boolean copied = installer.install();
+        Log.i(TAG, copied ? "Database copied successfully." : "Database already exists.");
 
         openDataBase(); // Open the actual database (either existing or newly copied)
     }
 
     /**
-     * Check if the database already exists.
-     * @return true if it exists, false if it doesn't
-     */
-    private boolean checkDataBaseExists() {
-        File dbFile = new File(dbPath);
-        return dbFile.exists();
-    }
-
-    /**
-     * Copies your database from your local assets-folder to the application's
-     * system folder.
-     */
-    private void copyDataBaseFromAssets() throws IOException {
-        // Using try-with-resources for automatic stream closing
-        try (InputStream myInput = myContext.getAssets().open(DB_NAME);
-             OutputStream myOutput = new FileOutputStream(dbPath)) {
-
-            byte[] buffer = new byte[4096]; // Increased buffer size
-            int length;
-            while ((length = myInput.read(buffer)) > 0) {
-                myOutput.write(buffer, 0, length);
-            }
-            myOutput.flush();
-        }
-    }
-
-    /**
-     * Opens the database.
+     * Opens the database read-only and tunes the connection for a small, read-mostly catalog.
      * @throws SQLException if the database cannot be opened.
      */
     public void openDataBase() throws SQLException {
+        long start = Tracing.begin("DatabaseCopyHelper.openDataBase");
         try {
-            myDataBase = SQLiteDatabase.openDatabase(dbPath, null, SQLiteDatabase.OPEN_READONLY);
+            myDataBase = SQLiteDatabase.openDatabase(dbPath, null,
+                    SQLiteDatabase.OPEN_READONLY | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+            // Memory-map the file so page reads skip the read() syscall copy, and size the page
+            // cache (negative = KiB) so the whole catalog stays resident once touched.
+            applyPragma(myDataBase, "PRAGMA mmap_size = " + MMAP_SIZE_BYTES);
+            applyPragma(myDataBase, "PRAGMA cache_size = -" + CACHE_SIZE_KIB);
             Log.i(TAG, "Database opened successfully at " + dbPath);
         } catch (SQLiteException e) {
             Log.e(TAG, "Failed to open database at " + dbPath, e);
             throw new SQLException("Failed to open database: " + e.getMessage(), e);
+        } finally {
+            Tracing.end(Tracing.DB_OPEN, start);
+        }
+    }
+
+    /**
+     * @return The read-only connection opened by {@link #openDataBase()}, or null if not open.
+     */
+    public SQLiteDatabase getDatabase() {
+        return myDataBase;
+    }
+
+    // PRAGMAs that set a value still return a row, so run them as queries rather than execSQL
+    private static void applyPragma(SQLiteDatabase db, String pragma) {
+        try (Cursor cursor = db.rawQuery(pragma, null)) {
+            cursor.moveToFirst();
         }
     }
 
@@ -125,41 +89,25 @@ public class DatabaseCopyHelper extends SQLiteOpenHelper {
 
     /**
      * This method is called when the database is created for the first time.
-     * Since we are copying a pre-existing database, this method will be called
-     * by getReadableDatabase() if the DB file doesn't exist, creating an empty shell.
-     * We don't need to do anything here as the actual schema is in the copied DB.
+     * The database is installed by AssetDatabaseInstaller and opened directly, so this only runs
+     * if the file is opened through the helper's getReadableDatabase() before it was installed,
+     * or for copies made before the bundled database carried a user_version.
      */
     @Override
     public void onCreate(SQLiteDatabase db) {
         Log.i(TAG, "SQLiteOpenHelper onCreate called (expected for initial empty DB creation by helper).");
-        // No explicit table creation needed here as we copy a pre-populated database.
+        FlagsSchema.create(db);
     }
 
     /**
-     * This method is called when the database needs to be upgraded.
-     * If you release a new version of your app with an updated database in assets,
-     * you'll need to implement logic here to handle the upgrade (e.g., re-copy).
+     * This method is called when the database needs to be upgraded, i.e. when a copy made by an
+     * older version of the app is opened through the helper. The schema is migrated in place,
+     * keeping its rows.
      */
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
         Log.i(TAG, "SQLiteOpenHelper onUpgrade called from version " + oldVersion + " to " + newVersion);
-        if (oldVersion < newVersion) {
-            // For a simple overwrite strategy if the DB in assets is newer:
-            // 1. Delete the old database file.
-            // 2. Call a method to re-copy from assets.
-            // This is a basic approach. More complex migrations might be needed for user data.
-            Log.w(TAG, "Database schema is outdated. Consider implementing upgrade logic to re-copy from assets or migrate data.");
-            // Example:
-            // File dbFile = new File(dbPath);
-            // if (dbFile.exists()) {
-            //     dbFile.delete();
-            // }
-            // try {
-            //     copyDataBaseFromAssets();
-            // } catch (IOException e) {
-            //     Log.e(TAG, "Failed to re-copy database during upgrade.", e);
-            // }
-        }
+        FlagsSchema.migrate(db, oldVersion, newVersion);
     }
 
     /**
@@ -0,0 +1,99 @@
+package com.tds.flagquiz;
+
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes single flags out of the atlas packed by the {@code packFlagAtlas} Gradle task.
+ * <p>
+ * The atlas asset is memory-mapped the first time one of its flags is needed and kept for the life
+ * of the process, so the asset lookup happens once per atlas rather than once per flag. Each flag
+ * in it is a lossless WebP image of its own: decoding one copies and decodes only that flag's
+ * bytes, never those of the flags stored around it. Safe to use from several threads.
+ */
+final class FlagAtlas {
+
+    private static final String TAG = "FlagAtlas";
+
+    private final AssetManager assets;
+    private final String directory;             // Asset directory of the atlas, "" for the bundled one
+    private FlagAtlasIndex index;               // Guarded by this; null until first use
+    private ByteBuffer images;                  // Guarded by this; the mapped atlas the index points into
+    private boolean unavailable;                // Guarded by this; the atlas could not be read
+
+    FlagAtlas(AssetManager assets) {
+        this(assets, "");
+    }
+
+    /**
+     * Reads an atlas laid out like the bundled one under the asset directory {@code directory},
+     * which ends with '/'. Used for content packs.
+     */
+    FlagAtlas(AssetManager assets, String directory) {
+        this.assets = assets;
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the index record of {@code flagId}, mapping the atlas on first use, or -1 if the
+     * atlas does not hold that flag. Blocking the first time, so call it off the main thread.
+     */
+    synchronized int find(int flagId) {
+        FlagAtlasIndex loaded = loadIndex();
+        return loaded != null ? loaded.find(flagId) : -1;
+    }
+
+    /**
+     * Decodes the flag at {@code record}, as returned by {@link #find(int)}, downsampled by
+     * {@code inSampleSize}.
+     *
+     * @return The flag, or null if its image could not be decoded.
+     */
+    Bitmap decode(int record, int inSampleSize) {
+        byte[] image;
+        synchronized (this) {
+            FlagAtlasIndex loaded = loadIndex();
+            if (loaded == null) {
+                return null;
+            }
+            // A few kilobytes; copied so the decode below runs without our lock
+            image = new byte[loaded.getLength(record)];
+            ByteBuffer source = images.duplicate();
+            source.position(loaded.getOffset(record));
+            source.get(image);
+        }
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = inSampleSize;
+        return BitmapFactory.decodeByteArray(image, 0, image.length, options);
+    }
+
+    /** Width of the flag at {@code record}, before any downsampling. */
+    synchronized int getWidth(int record) {
+        return index.getWidth(record);
+    }
+
+    /** Height of the flag at {@code record}, before any downsampling. */
+    synchronized int getHeight(int record) {
+        return index.getHeight(record);
+    }
+
+    private FlagAtlasIndex loadIndex() {
+        if (index == null && !unavailable) {
+            try {
+                ByteBuffer mapped = FlagRepository.mapAsset(assets, directory + FlagAtlasIndex.ASSET_NAME);
+                index = FlagAtlasIndex.read(mapped);
+                images = mapped;
+                Log.d(TAG, "Flag atlas mapped, " + index.size() + " flags in " + mapped.limit() + " bytes.");
+            } catch (IOException | IllegalArgumentException e) {
+                unavailable = true; // Don't retry for every flag
+                Log.e(TAG, "Flag atlas unavailable in '" + directory + "'", e);
+            }
+        }
+        return index;
+    }
+}
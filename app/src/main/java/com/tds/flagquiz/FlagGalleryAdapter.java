@@ -0,0 +1,127 @@
+package com.tds.flagquiz;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rows of the flag gallery: either the pages read so far in name order, or the current search
+ * matches, which are catalog rows found by {@link FlagNameIndex}. Thumbnails are decoded off the
+ * main thread by {@link FlagImageLoader} at the size of the row's image view.
+ */
+class FlagGalleryAdapter extends RecyclerView.Adapter<FlagGalleryAdapter.FlagViewHolder> {
+
+    /** Asks for the page after the last flag shown; called on the main thread while binding. */
+    interface PageRequester {
+        void requestPageAfter(FlagsModel last);
+    }
+
+    // Start reading the next page this many rows before the end of the loaded ones
+    private static final int PAGE_PREFETCH_DISTANCE = 20;
+
+    private final FlagImageLoader flagImageLoader;
+    private final PageRequester pageRequester;
+
+    private final List<FlagsModel> pages = new ArrayList<>();
+    private boolean pageRequested;
+    private boolean lastPageLoaded;
+
+    // Search results; null while all flags are listed
+    private FlagCatalog catalog;
+    private int[] matches;
+    private int matchCount;
+
+    FlagGalleryAdapter(FlagImageLoader flagImageLoader, PageRequester pageRequester) {
+        this.flagImageLoader = flagImageLoader;
+        this.pageRequester = pageRequester;
+        setHasStableIds(true);
+    }
+
+    /** Appends a page read by the requester; a short page means there are no more. */
+    void addPage(List<FlagsModel> page, int pageSize) {
+        pageRequested = false;
+        lastPageLoaded = page.size() < pageSize;
+        if (matches != null) {
+            pages.addAll(page); // Shown once the search is cleared
+            return;
+        }
+        int start = pages.size();
+        pages.addAll(page);
+        notifyItemRangeInserted(start, page.size());
+    }
+
+    /**
+     * Shows the first {@code count} catalog rows of {@code rows}, or every flag again if
+     * {@code rows} is null. The array is read while binding, so the caller may only change it
+     * through another call to this method.
+     */
+    void showMatches(FlagCatalog catalog, int[] rows, int count) {
+        this.catalog = catalog;
+        this.matches = rows;
+        this.matchCount = count;
+        notifyDataSetChanged(); // A keystroke can change every row; the list is a few hundred at most
+    }
+
+    @Override
+    public int getItemCount() {
+        return matches != null ? matchCount : pages.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return matches != null ? catalog.getId(matches[position]) : pages.get(position).getFlag_id();
+    }
+
+    @NonNull
+    @Override
+    public FlagViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_flag, parent, false);
+        return new FlagViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull FlagViewHolder holder, int position) {
+        int flagId;
+        if (matches != null) {
+            int row = matches[position];
+            flagId = catalog.getId(row);
+            holder.tvName.setText(catalog.getName(row));
+        } else {
+            FlagsModel flag = pages.get(position);
+            flagId = flag.getFlag_id();
+            holder.tvName.setText(flag.getFlag_name());
+            if (!pageRequested && !lastPageLoaded && position >= pages.size() - PAGE_PREFETCH_DISTANCE) {
+                pageRequested = true;
+                pageRequester.requestPageAfter(pages.get(pages.size() - 1));
+            }
+        }
+        flagImageLoader.load(flagId, holder.ivThumbnail, R.drawable.ic_placeholder_flag,
+                holder.thumbnailGeneration, holder.thumbnailGeneration.advance(), null);
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull FlagViewHolder holder) {
+        // A fling scrolls past rows faster than they decode; drop the ones nobody will see
+        holder.thumbnailGeneration.advance();
+    }
+
+    static final class FlagViewHolder extends RecyclerView.ViewHolder {
+        final ImageView ivThumbnail;
+        final TextView tvName;
+        final Generation thumbnailGeneration = new Generation();
+
+        FlagViewHolder(View itemView) {
+            super(itemView);
+            ivThumbnail = itemView.findViewById(R.id.flag_thumbnail);
+            tvName = itemView.findViewById(R.id.flag_name);
+        }
+    }
+}
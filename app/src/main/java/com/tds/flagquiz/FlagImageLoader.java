@@ -0,0 +1,292 @@
+package com.tds.flagquiz;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.util.SparseArray;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * App-scoped loader for flag bitmaps.
+ * <p>
+ * Flags are decoded out of the packed flag atlas (see {@link FlagAtlas}) on a background thread,
+ * downsampled to the size they are shown at, and kept in an LRU cache sized from the device
+ * memory class. Callers prefetch the upcoming
+ * questions so that showing the next flag is normally a cache hit on the main thread.
+ * <p>
+ * Decodes run on the shared background pool: a flag about to be shown ahead of any prefetch.
+ */
+public class FlagImageLoader implements ComponentCallbacks2 {
+
+    private static final String TAG = "FlagImageLoader";
+
+    // Share of the app's memory class that the bitmap cache may use
+    private static final int CACHE_FRACTION_OF_MEMORY_CLASS = 8;
+
+    private static volatile FlagImageLoader instance;
+
+    private final Context appContext;
+    private final FlagAtlas atlas;
+    private final SparseArray<FlagAtlas> packAtlases = new SparseArray<>(); // Guarded by itself; by pack id
+    private final LruCache<Long, Bitmap> cache;
+    private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+
+    // Decodes in flight, with the views waiting for each of them
+    private final Map<Long, List<WeakReference<ImageView>>> pending = new HashMap<>();
+    // Stands in the waiting list for a prefetch that joined a decode already in flight
+    private static final WeakReference<ImageView> PREFETCH_REQUEST = new WeakReference<>(null);
+
+    public static FlagImageLoader getInstance(Context context) {
+        FlagImageLoader loader = instance;
+        if (loader == null) {
+            synchronized (FlagImageLoader.class) {
+                loader = instance;
+                if (loader == null) {
+                    loader = new FlagImageLoader(context.getApplicationContext());
+                    instance = loader;
+                }
+            }
+        }
+        return loader;
+    }
+
+    private FlagImageLoader(Context appContext) {
+        this.appContext = appContext;
+        atlas = new FlagAtlas(appContext.getAssets());
+
+        ActivityManager activityManager = (ActivityManager) appContext.getSystemService(Context.ACTIVITY_SERVICE);
+        int cacheBytes = activityManager.getMemoryClass() * 1024 * 1024 / CACHE_FRACTION_OF_MEMORY_CLASS;
+        cache = new LruCache<Long, Bitmap>(cacheBytes) {
+            @Override
+            protected int sizeOf(Long key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+        appContext.registerComponentCallbacks(this);
+        Log.d(TAG, "Bitmap cache size: " + cacheBytes + " bytes");
+    }
+
+    /**
+     * Shows the flag for {@code flagId} in {@code target}. A cached bitmap is set immediately;
+     * otherwise the placeholder is shown and the bitmap is set once decoded in the background.
+     * Must be called on the main thread.
+     */
+    public void load(int flagId, ImageView target, int placeholderResId) {
+        load(flagId, target, placeholderResId, null, 0, null);
+    }
+
+    /**
+     * Like {@link #load(int, ImageView, int)}, for a caller that moves through flags quickly: if
+     * {@code generation} has moved past {@code token} before the decode starts or finishes, the
+     * result is not shown. A decode that nothing else is waiting for is then skipped altogether.
+     *
+     * @param onShown Run on the main thread once the flag itself (not the placeholder) is set on
+     *                {@code target}: right away on a cache hit. May be null.
+     */
+    public void load(int flagId, ImageView target, int placeholderResId, Generation generation, int token,
+                     Runnable onShown) {
+        int width = targetWidth(target);
+        int height = targetHeight(target);
+        long key = cacheKey(flagId, width, height);
+        target.setTag(R.id.tag_flag_image_key, key);
+
+        Bitmap cached = cache.get(key);
+        if (cached != null) {
+            Tracing.count(Tracing.IMAGE_CACHE_HIT);
+            target.setImageBitmap(cached);
+            if (onShown != null) {
+                onShown.run();
+            }
+            return;
+        }
+        Tracing.count(Tracing.IMAGE_CACHE_MISS);
+        target.setImageResource(placeholderResId);
+        decodeAsync(flagId, width, height, key, target, generation, token, onShown);
+    }
+
+    /**
+     * Decodes {@code flagId} into the cache ahead of time, sized for {@code target}.
+     * Safe to call from any thread.
+     */
+    public void prefetch(int flagId, ImageView target) {
+        prefetch(flagId, targetWidth(target), targetHeight(target));
+    }
+
+    public void prefetch(int flagId, int width, int height) {
+        long key = cacheKey(flagId, width, height);
+        if (cache.get(key) == null) {
+            decodeAsync(flagId, width, height, key, null, null, 0, null);
+        }
+    }
+
+    private void decodeAsync(int flagId, int width, int height, long key, ImageView target,
+                             Generation generation, int token, Runnable onShown) {
+        // Only held weakly, so a queued decode does not keep a finished activity alive
+        WeakReference<ImageView> targetRef = target != null ? new WeakReference<>(target) : null;
+        synchronized (pending) {
+            List<WeakReference<ImageView>> waiting = pending.get(key);
+            if (waiting != null) {
+                // Already being decoded, just wait for that result
+                waiting.add(targetRef != null ? targetRef : PREFETCH_REQUEST);
+                return;
+            }
+            waiting = new ArrayList<>(1);
+            if (targetRef != null) {
+                waiting.add(targetRef);
+            }
+            pending.put(key, waiting);
+        }
+
+        int priority = target != null ? PriorityExecutor.PRIORITY_INTERACTIVE : PriorityExecutor.PRIORITY_PREFETCH;
+        AppExecutors.background().execute(priority, () -> {
+            if (generation != null && !generation.isCurrent(token)) {
+                // The caller has moved on; decode only if a prefetch or another view joined in
+                synchronized (pending) {
+                    List<WeakReference<ImageView>> waiting = pending.get(key);
+                    if (waiting != null && waiting.size() == 1 && waiting.get(0) == targetRef) {
+                        pending.remove(key);
+                        return;
+                    }
+                }
+            }
+            Bitmap bitmap = decode(flagId, width, height);
+            if (bitmap != null) {
+                cache.put(key, bitmap);
+            }
+
+            List<WeakReference<ImageView>> waiting;
+            synchronized (pending) {
+                waiting = pending.remove(key);
+            }
+            if (bitmap == null || waiting == null || waiting.isEmpty()) {
+                return;
+            }
+            mainThreadHandler.post(() -> {
+                for (WeakReference<ImageView> ref : waiting) {
+                    ImageView view = ref.get();
+                    if (ref == targetRef && generation != null && !generation.isCurrent(token)) {
+                        continue; // Superseded while decoding; the bitmap stays cached for later
+                    }
+                    // Skip views that have moved on to another flag in the meantime
+                    if (view != null && Long.valueOf(key).equals(view.getTag(R.id.tag_flag_image_key))) {
+                        view.setImageBitmap(bitmap);
+                        if (ref == targetRef && onShown != null) {
+                            onShown.run();
+                        }
+                    }
+                }
+            });
+        });
+    }
+
+    private Bitmap decode(int flagId, int width, int height) {
+        long resolveStart = Tracing.begin("FlagImageLoader.resolve");
+        FlagAtlas atlas = atlasOf(flagId);
+        int record = atlas != null ? atlas.find(ContentPack.localIdOf(flagId)) : -1;
+        Tracing.end(Tracing.IMAGE_RESOLVE, resolveStart);
+        if (record < 0) {
+            Log.w(TAG, "No atlas entry for flag id: " + flagId);
+            return null;
+        }
+
+        long decodeStart = Tracing.begin("FlagImageLoader.decode");
+        try {
+            // Only the flag's own image is read, shrunk by inSampleSize if the view is smaller
+            int inSampleSize = calculateInSampleSize(atlas.getWidth(record), atlas.getHeight(record), width, height);
+            Bitmap bitmap = atlas.decode(record, inSampleSize);
+            if (bitmap == null) {
+                Log.w(TAG, "Failed to decode flag id: " + flagId);
+            }
+            return bitmap;
+        } finally {
+            Tracing.end(Tracing.IMAGE_DECODE, decodeStart);
+        }
+    }
+
+    // The bundled atlas, or that of the content pack the flag belongs to, opened on first use
+    private FlagAtlas atlasOf(int flagId) {
+        int packId = ContentPack.packOf(flagId);
+        if (packId == ContentPack.BUNDLED_PACK_ID) {
+            return atlas;
+        }
+        synchronized (packAtlases) {
+            FlagAtlas packAtlas = packAtlases.get(packId);
+            if (packAtlas == null) {
+                ContentPack pack = ContentPackRegistry.getInstance(appContext).getPack(packId);
+                if (pack == null) {
+                    return null;
+                }
+                packAtlas = new FlagAtlas(appContext.getAssets(), pack.getAtlasDirectory());
+                packAtlases.put(packId, packAtlas);
+            }
+            return packAtlas;
+        }
+    }
+
+    private static int calculateInSampleSize(int rawWidth, int rawHeight, int reqWidth, int reqHeight) {
+        int inSampleSize = 1;
+        if (reqWidth <= 0 || reqHeight <= 0) {
+            return inSampleSize;
+        }
+        // Largest power of two that keeps both dimensions at least as big as requested
+        while (rawWidth / (inSampleSize * 2) >= reqWidth && rawHeight / (inSampleSize * 2) >= reqHeight) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    private static int targetWidth(ImageView view) {
+        if (view.getWidth() > 0) {
+            return view.getWidth();
+        }
+        ViewGroup.LayoutParams params = view.getLayoutParams();
+        return params != null ? Math.max(params.width, 0) : 0;
+    }
+
+    private static int targetHeight(ImageView view) {
+        if (view.getHeight() > 0) {
+            return view.getHeight();
+        }
+        ViewGroup.LayoutParams params = view.getLayoutParams();
+        return params != null ? Math.max(params.height, 0) : 0;
+    }
+
+    private static long cacheKey(int flagId, int width, int height) {
+        return ((long) flagId << 32) | ((long) (width & 0xFFFF) << 16) | (height & 0xFFFF);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_BACKGROUND) {
+            cache.evictAll(); // App is in the background, the next quiz will prefetch again
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            cache.trimToSize(cache.maxSize() / 2);
+        }
+        Log.d(TAG, "onTrimMemory(" + level + "), cache now " + cache.size() + " bytes");
+    }
+
+    @Override
+    public void onLowMemory() {
+        cache.evictAll();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        // Cached bitmaps do not depend on configuration
+    }
+}
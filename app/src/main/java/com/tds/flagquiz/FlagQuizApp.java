@@ -0,0 +1,175 @@
+package com.tds.flagquiz;
+
+import android.app.Application;
+import android.content.res.Resources;
+import android.database.SQLException;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Starts the flag data warm-up as soon as the process starts, so it runs while the first
+ * activity is still inflating instead of after it.
+ * <p>
+ * The warm-up installs and opens the flag source, loads the catalog, plans the first quiz and
+ * starts decoding its first flags. Activities are told when it is done with {@link #whenReady}
+ * and QuizViewModel picks up the ready-made plan with {@link #takeFirstPlan(boolean)}. A warm-up
+ * that failed is started again by the next {@link #whenReady} call.
+ */
+public class FlagQuizApp extends Application {
+
+    private static final String TAG = "FlagQuizApp";
+
+    /**
+     * Told once when the warm-up is done. Called on the warm-up's pool thread, or on the caller's
+     * thread if it was already done, so hand anything long to a thread of its own.
+     */
+    public interface ReadyListener {
+        void onReady();
+
+        /**
+         * @param error An {@link IOException} if the bundled database could not be installed or no
+         *              flags could be read, an {@link SQLException} if the flag source could not be opened.
+         */
+        void onFailed(Exception error);
+    }
+
+    private final AtomicReference<QuizSessionPlan> firstPlan = new AtomicReference<>();
+    private volatile boolean firstPlanSimilar; // Distractor setting the first plan was built with
+    private WarmUp warmUp; // Guarded by this; replaced when it failed and someone asks again
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        MainThreadReport.install(this); // Debug builds only; first, so it sees the whole startup
+        synchronized (this) {
+            // Started before any activity exists, so it gets a thread of the shared pool straight away
+            startWarmUp();
+        }
+    }
+
+    // Holding the lock
+    private void startWarmUp() {
+        warmUp = new WarmUp();
+        AppExecutors.background().execute(PriorityExecutor.PRIORITY_INTERACTIVE, warmUp);
+    }
+
+    private Void warmUp() throws IOException, SQLException {
+        long start = Tracing.begin("FlagQuizApp.warmUp");
+        try {
+            FlagRepository flagRepository = FlagRepository.getInstance(this);
+            flagRepository.open();
+            FlagCatalog catalog = flagRepository.getCatalog();
+            if (catalog == null) {
+                // Fails the warm-up, so listeners hear of it and the next whenReady starts it again
+                throw new IOException("Flag catalog could not be read");
+            }
+
+            boolean similar = QuizSettings.isSimilarDistractors(this);
+            DistractorStrategy distractorStrategy = flagRepository.getDistractorStrategy(similar);
+            long planStart = Tracing.begin("QuizSessionPlan.build");
+            QuizSessionPlan plan = QuizSessionPlan.build(catalog, QuizActivity.NUMBER_OF_QUESTIONS_PER_QUIZ,
+                    QuizActivity.NUMBER_OF_OPTIONS_PER_QUESTION, distractorStrategy);
+            Tracing.end(Tracing.SESSION_PLAN, planStart);
+            firstPlanSimilar = similar;
+            firstPlan.set(plan);
+
+            // Decode at the size the quiz screen shows flags at, so these are cache hits there
+            Resources resources = getResources();
+            int width = resources.getDimensionPixelSize(R.dimen.flag_image_width);
+            int height = resources.getDimensionPixelSize(R.dimen.flag_image_height);
+            FlagImageLoader flagImageLoader = FlagImageLoader.getInstance(this);
+            for (int i = 0; i <= QuizActivity.NUMBER_OF_FLAGS_TO_PREFETCH && i < plan.size(); i++) {
+                flagImageLoader.prefetch(plan.getQuestionFlagId(i), width, height);
+            }
+            Log.d(TAG, "Warm-up done, first quiz planned.");
+            return null;
+        } finally {
+            Tracing.end(Tracing.WARM_UP, start);
+        }
+    }
+
+    /**
+     * Tells the listener once the warm-up has opened the flag data, or failed to. Does not block,
+     * so it can be called from the main thread. If the last warm-up failed, starts a new one.
+     */
+    public void whenReady(ReadyListener listener) {
+        WarmUp done;
+        synchronized (this) {
+            if (warmUp.isDone() && warmUp.getFailure() != null) {
+                Log.d(TAG, "Last warm-up failed, starting it again.");
+                startWarmUp();
+            }
+            if (!warmUp.isDone()) {
+                warmUp.listeners.add(listener); // Told by done(), which takes this lock after us
+                return;
+            }
+            done = warmUp;
+        }
+        done.tell(listener);
+    }
+
+    /**
+     * Hands out the quiz planned during warm-up, once. Later quizzes are planned by the caller.
+     *
+     * @param similarDistractors The distractor setting the quiz is for; a plan built with the
+     *                           other setting is thrown away.
+     * @return The first quiz plan, or null if it is not ready, was already taken or does not match.
+     */
+    public QuizSessionPlan takeFirstPlan(boolean similarDistractors) {
+        QuizSessionPlan plan = firstPlan.getAndSet(null);
+        return plan != null && firstPlanSimilar == similarDistractors ? plan : null;
+    }
+
+    /**
+     * One warm-up run, and the listeners waiting for it.
+     */
+    private final class WarmUp extends FutureTask<Void> {
+
+        private final List<ReadyListener> listeners = new ArrayList<>(); // Guarded by FlagQuizApp.this
+
+        WarmUp() {
+            super(FlagQuizApp.this::warmUp);
+        }
+
+        @Override
+        protected void done() {
+            List<ReadyListener> waiting;
+            synchronized (FlagQuizApp.this) {
+                waiting = new ArrayList<>(listeners);
+                listeners.clear();
+            }
+            for (ReadyListener listener : waiting) {
+                tell(listener);
+            }
+        }
+
+        void tell(ReadyListener listener) {
+            Exception failure = getFailure();
+            if (failure == null) {
+                listener.onReady();
+            } else {
+                listener.onFailed(failure);
+            }
+        }
+
+        // Once done: null if the warm-up succeeded, else what it threw
+        Exception getFailure() {
+            try {
+                get();
+                return null;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                return cause instanceof Exception ? (Exception) cause : new IllegalStateException("Warm-up failed", cause);
+            } catch (InterruptedException | CancellationException e) {
+                return new IllegalStateException("Warm-up stopped", e); // Not interrupted: get() returns at once when done
+            }
+        }
+    }
+}
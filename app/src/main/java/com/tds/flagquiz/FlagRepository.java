@@ -0,0 +1,475 @@
+package com.tds.flagquiz;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.StrictMode;
+import android.util.Log;
+import android.util.SparseArray;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Process-wide access to the flag data.
+ * <p>
+ * Flags are read from the binary catalog asset, memory-mapped straight out of the APK, so the
+ * first launch does not have to copy and open a database. If that asset is missing or
+ * unreadable, the repository falls back to the single read-only connection to flagquizdb.db,
+ * which is installed and opened once and then kept for the life of the process.
+ * Activities share this instance instead of opening their own helpers.
+ * <p>
+ * Flag names are shown in the device language when there are names for it. The rows of
+ * {@code flag_names} are compiled into the binary catalog as one table per locale; only the
+ * device locale's table is read, once, and folded into the catalog with its collation order.
+ * Other languages cost nothing until the device switches to one.
+ * <p>
+ * Flags of the content packs the player selected are added to the catalog: each pack's database
+ * is installed and attached to the shared connection the first time it is selected, and its
+ * flags read once. Packs that are not selected are never installed or read.
+ */
+public final class FlagRepository {
+
+    private static final String TAG = "FlagRepository";
+
+    private static volatile FlagRepository instance;
+
+    // Language of the names stored in flagquiztable itself
+    private static final String STORED_NAMES_LOCALE = "en";
+    // flag_names locales that are not just a language code
+    private static final String TRADITIONAL_CHINESE_NAMES_LOCALE = "zh-Hant";
+    private static final String NORWEGIAN_NAMES_LOCALE = "nb"; // Bokmal; devices may report it as "no"
+
+    private final Context appContext;
+    private final DatabaseCopyHelper dbHelper;
+    private volatile FlagSource flagSource;
+    private volatile FlagCatalog baseCatalog; // As stored, English names
+    private volatile FlagCatalog catalog; // baseCatalog with the names of catalogLocale
+    private volatile String catalogKey; // Locale and selected packs catalog was made for
+    private final SparseArray<FlagCatalog> packCatalogs = new SparseArray<>(); // Guarded by this; by pack id, null if unreadable
+    private volatile DistractorStrategy similarDistractors;
+    private volatile FlagNameIndex nameIndex;
+    private volatile FlagNameMatcher nameMatcher;
+
+    public static FlagRepository getInstance(Context context) {
+        FlagRepository repository = instance;
+        if (repository == null) {
+            synchronized (FlagRepository.class) {
+                repository = instance;
+                if (repository == null) {
+                    repository = new FlagRepository(context.getApplicationContext());
+                    instance = repository;
+                }
+            }
+        }
+        return repository;
+    }
+
+    private FlagRepository(Context appContext) {
+        this.appContext = appContext;
+        dbHelper = new DatabaseCopyHelper(appContext);
+    }
+
+    /**
+     * Opens the flag source: the binary catalog if it can be mapped, the database otherwise.
+     * Blocking, so call it off the main thread; later calls return immediately.
+     */
+    public void open() throws IOException, SQLException {
+        if (flagSource != null) {
+            return;
+        }
+        synchronized (this) {
+            if (flagSource == null) {
+                long start = Tracing.begin("FlagRepository.open");
+                try {
+                    FlagSource source = openBinarySource();
+                    if (source == null) {
+                        source = new FlagsDAO(openDatabase());
+                        Log.d(TAG, "Using the SQLite flag database.");
+                    }
+                    flagSource = source;
+                } finally {
+                    Tracing.end(Tracing.FLAG_SOURCE_OPEN, start);
+                }
+            }
+        }
+    }
+
+    public boolean isOpen() {
+        return flagSource != null;
+    }
+
+    /**
+     * Installs the database from assets if needed and returns the shared read-only connection.
+     * Blocking, so call it off the main thread; later calls return the same connection.
+     */
+    public synchronized SQLiteDatabase openDatabase() throws IOException, SQLException {
+        StrictMode.noteSlowCall("FlagRepository.openDatabase"); // May copy and open the database, see FlagsDAO
+        SQLiteDatabase db = dbHelper.getDatabase();
+        if (db == null) {
+            dbHelper.createAndOpenDatabase();
+            db = dbHelper.getDatabase();
+            Log.d(TAG, "Shared flag database connection opened.");
+        }
+        return db;
+    }
+
+    /**
+     * Returns the in-memory flag catalog in the device language, with the flags of the selected
+     * content packs, opening the flag source and loading it on first use, and building it again
+     * if the language or the selection has changed since.
+     *
+     * @return The shared catalog, or null if no flag source could be opened or read.
+     */
+    public FlagCatalog getCatalog() {
+        String locale = activeNamesLocale();
+        Set<String> selectedPacks = QuizSettings.getSelectedPacks(appContext);
+        String key = locale + selectedPacks;
+        FlagCatalog loaded = catalog;
+        if (loaded == null || !key.equals(catalogKey)) {
+            synchronized (this) {
+                loaded = catalog;
+                if (loaded == null || !key.equals(catalogKey)) {
+                    FlagCatalog base = baseCatalog;
+                    if (base == null) {
+                        FlagSource source = openedSource();
+                        long start = Tracing.begin("FlagRepository.loadCatalog");
+                        try {
+                            base = source != null ? source.loadCatalog() : null;
+                        } finally {
+                            Tracing.end(Tracing.CATALOG_LOAD, start);
+                        }
+                        baseCatalog = base;
+                    }
+                    loaded = base != null ? localize(withPacks(base, selectedPacks), locale) : null;
+                    // Built from the previous names; rebuilt from these on next use
+                    nameIndex = null;
+                    nameMatcher = null;
+                    similarDistractors = null;
+                    catalog = loaded;
+                    catalogKey = key;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    // The flag_names locale whose names are shown: the language code, except that Chinese is told
+    // apart by script and Norwegian is stored as Bokmal. toLanguageTag turns the legacy iw/in codes into he/id
+    private static String activeNamesLocale() {
+        Locale locale = Locale.getDefault();
+        String tag = locale.toLanguageTag();
+        int dash = tag.indexOf('-');
+        String language = dash > 0 ? tag.substring(0, dash) : tag;
+        switch (language) {
+            case "zh":
+                // "zh" holds Simplified names; without Traditional ones the stored names are shown, not Simplified
+                return isTraditionalChinese(locale) ? TRADITIONAL_CHINESE_NAMES_LOCALE : language;
+            case "no":
+                return NORWEGIAN_NAMES_LOCALE;
+            default:
+                return language;
+        }
+    }
+
+    // zh-Hant, or zh-TW, zh-HK and zh-MO when no script is given, as Android reports them
+    private static boolean isTraditionalChinese(Locale locale) {
+        String script = locale.getScript();
+        if (!script.isEmpty()) {
+            return script.equals("Hant");
+        }
+        String region = locale.getCountry();
+        return region.equals("TW") || region.equals("HK") || region.equals("MO");
+    }
+
+    // The bundled flags followed by those of every selected pack that could be read
+    private FlagCatalog withPacks(FlagCatalog base, Set<String> selectedPacks) {
+        List<ContentPack> packs = ContentPackRegistry.getInstance(appContext).getPacks(selectedPacks);
+        if (packs.isEmpty()) {
+            return base;
+        }
+        List<FlagCatalog> parts = new ArrayList<>(packs.size() + 1);
+        parts.add(base);
+        for (ContentPack pack : packs) {
+            FlagCatalog part = loadPackCatalog(pack);
+            if (part != null) {
+                parts.add(part);
+            }
+        }
+        return parts.size() > 1 ? FlagCatalog.merge(parts) : base;
+    }
+
+    // Installs and attaches the pack on first use and reads its flags, once per process
+    private FlagCatalog loadPackCatalog(ContentPack pack) {
+        int slot = packCatalogs.indexOfKey(pack.getId());
+        if (slot >= 0) {
+            return packCatalogs.valueAt(slot);
+        }
+        FlagCatalog part = null;
+        long start = Tracing.begin("FlagRepository.loadPack");
+        try {
+            File installed = ContentPackRegistry.getInstance(appContext).install(pack);
+            SQLiteDatabase db = openDatabase();
+            // The schema name comes from the manifest, which only allows [a-z0-9_]
+            StrictMode.noteSlowCall("FlagRepository.attachPack");
+            db.execSQL("ATTACH DATABASE ? AS " + pack.getSchemaName(), new Object[]{installed.getPath()});
+            part = new FlagsDAO(db, pack).loadCatalog();
+            int foreignRow = part != null ? pack.findForeignRow(part) : -1;
+            if (foreignRow >= 0) {
+                // A stored flag_id out of range would pass for another pack's flag, so drop the whole pack
+                Log.e(TAG, "Content pack " + pack.getName() + " rejected, flag_id out of range: "
+                        + (part.getId(foreignRow) - ContentPack.globalId(pack.getId(), 0)));
+                part = null;
+            } else {
+                Log.d(TAG, "Content pack " + pack.getName() + " attached, "
+                        + (part != null ? part.size() : 0) + " flags.");
+            }
+        } catch (IOException | SQLException e) {
+            Log.e(TAG, "Content pack " + pack.getName() + " unavailable", e);
+        } finally {
+            Tracing.end(Tracing.PACK_LOAD, start);
+        }
+        packCatalogs.put(pack.getId(), part); // A pack that failed is not retried until restart
+        return part;
+    }
+
+    // The catalog with the names of one locale; the stored names if it has none or they cannot be read
+    private FlagCatalog localize(FlagCatalog base, String locale) {
+        if (STORED_NAMES_LOCALE.equals(locale)) {
+            return base;
+        }
+        FlagSource source = openedSource();
+        if (source == null) {
+            return base;
+        }
+        long start = Tracing.begin("FlagRepository.localize");
+        try {
+            // From the binary catalog's table for this locale; only the SQLite fallback queries flag_names
+            String[] names = source.loadLocalizedNames(locale, base);
+            if (names == null) {
+                Log.d(TAG, "No flag names for " + locale + ", using the stored ones.");
+                return base;
+            }
+            // Collation keys are made once here, so sorting by name never compares strings
+            return base.withLocalizedNames(names, Collator.getInstance(Locale.getDefault()));
+        } finally {
+            Tracing.end(Tracing.CATALOG_LOCALIZE, start);
+        }
+    }
+
+    /**
+     * Returns how quiz options are chosen: flags that look like the answer if {@code similar} and the
+     * similarity index asset can be read, otherwise uniformly random ones. Loads the catalog and the
+     * index on first use, so call it off the main thread.
+     */
+    public DistractorStrategy getDistractorStrategy(boolean similar) {
+        if (!similar) {
+            return RandomDistractors.INSTANCE;
+        }
+        DistractorStrategy strategy = similarDistractors;
+        if (strategy == null) {
+            synchronized (this) {
+                strategy = similarDistractors;
+                if (strategy == null) {
+                    strategy = loadSimilarDistractors();
+                    similarDistractors = strategy;
+                }
+            }
+        }
+        return strategy;
+    }
+
+    private DistractorStrategy loadSimilarDistractors() {
+        FlagCatalog loaded = getCatalog();
+        if (loaded == null) {
+            return RandomDistractors.INSTANCE;
+        }
+        try {
+            FlagSimilarityIndex index = FlagSimilarityIndex.read(mapAsset(appContext.getAssets(), FlagSimilarityIndex.ASSET_NAME));
+            Log.d(TAG, "Flag similarity index loaded, " + index.size() + " flags.");
+            return new SimilarDistractors(index, loaded);
+        } catch (IOException | IllegalArgumentException e) {
+            Log.w(TAG, "Flag similarity index unavailable, using random options", e);
+            return RandomDistractors.INSTANCE;
+        }
+    }
+
+    /**
+     * Random questions from the catalog once it is loaded, otherwise straight from the flag source.
+     */
+    public List<FlagsModel> getRandomQuestions(int limit) {
+        long start = Tracing.begin("FlagRepository.getRandomQuestions");
+        try {
+            FlagCatalog loaded = catalog;
+            if (loaded != null) {
+                return loaded.sampleQuestions(limit);
+            }
+            FlagSource source = openedSource();
+            return source != null ? source.getRandomQuestions(limit) : new ArrayList<>();
+        } finally {
+            Tracing.end(Tracing.RANDOM_QUESTIONS, start);
+        }
+    }
+
+    /**
+     * Random options other than {@code excludedFlagId}, from the catalog once it is loaded,
+     * otherwise straight from the flag source.
+     */
+    public List<FlagsModel> getRandomOptions(int excludedFlagId, int numberOfOptions) {
+        long start = Tracing.begin("FlagRepository.getRandomOptions");
+        try {
+            FlagCatalog loaded = catalog;
+            if (loaded != null) {
+                return loaded.sampleOptions(excludedFlagId, numberOfOptions);
+            }
+            FlagSource source = openedSource();
+            return source != null ? source.getRandomOptions(excludedFlagId, numberOfOptions) : new ArrayList<>();
+        } finally {
+            Tracing.end(Tracing.RANDOM_OPTIONS, start);
+        }
+    }
+
+    /**
+     * One page of flags in name order, after the last flag of the previous page, read straight
+     * from the flag source unless names are localized or packs are added. Blocking, so call it
+     * off the main thread.
+     *
+     * @see FlagSource#getPageByName(String, int, int)
+     */
+    public List<FlagsModel> getFlagPage(String afterName, int afterFlagId, int limit) {
+        FlagCatalog loaded = catalog;
+        if (loaded != null || !QuizSettings.getSelectedPacks(appContext).isEmpty()) {
+            loaded = getCatalog(); // Immediate once loaded, unless the language or the packs changed
+        }
+        if (loaded != null && loaded != baseCatalog) {
+            return getCatalogFlagPage(loaded, afterName != null ? afterFlagId : null, limit);
+        }
+        FlagSource source = openedSource();
+        return source != null ? source.getPageByName(afterName, afterFlagId, limit) : new ArrayList<>();
+    }
+
+    // The flag source knows neither localized names nor pack flags, so page through the catalog's name order
+    private List<FlagsModel> getCatalogFlagPage(FlagCatalog loaded, Integer afterFlagId, int limit) {
+        List<FlagsModel> page = new ArrayList<>();
+        FlagNameIndex index = getNameIndex();
+        if (index == null) {
+            return page;
+        }
+        int start = 0;
+        if (afterFlagId != null) {
+            int row = loaded.indexOf(afterFlagId);
+            start = row >= 0 ? index.rankOf(row) + 1 : index.size();
+        }
+        for (int rank = start; rank < index.size() && page.size() < limit; rank++) {
+            page.add(loaded.toModel(index.rowAtRank(rank)));
+        }
+        return page;
+    }
+
+    /**
+     * Returns the prefix search index over flag names, building it from the catalog on first use,
+     * so call it off the main thread. Searches on the returned index must stay on one thread.
+     *
+     * @return The shared index, or null if the catalog could not be loaded.
+     */
+    public FlagNameIndex getNameIndex() {
+        FlagNameIndex index = nameIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = nameIndex;
+                if (index == null) {
+                    FlagCatalog loaded = getCatalog();
+                    index = loaded != null ? FlagNameIndex.build(loaded) : null;
+                    nameIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns the typo-tolerant matcher for typed answers, building it from the catalog on first
+     * use, so call it off the main thread. Lookups on the returned matcher must stay on one thread.
+     *
+     * @return The shared matcher, or null if the catalog could not be loaded.
+     */
+    public FlagNameMatcher getNameMatcher() {
+        FlagNameMatcher matcher = nameMatcher;
+        if (matcher == null) {
+            synchronized (this) {
+                matcher = nameMatcher;
+                if (matcher == null) {
+                    FlagCatalog loaded = getCatalog();
+                    matcher = loaded != null ? FlagNameMatcher.build(loaded) : null;
+                    nameMatcher = matcher;
+                }
+            }
+        }
+        return matcher;
+    }
+
+    private FlagSource openedSource() {
+        try {
+            open();
+        } catch (IOException | SQLException e) {
+            Log.e(TAG, "Error opening flag data", e);
+        }
+        return flagSource;
+    }
+
+    /**
+     * Maps the binary catalog asset, or returns null so the caller can fall back to SQLite.
+     */
+    private FlagSource openBinarySource() {
+        try {
+            BinaryFlagSource source = new BinaryFlagSource(mapAsset(appContext.getAssets(), BinaryFlagSource.ASSET_NAME));
+            Log.d(TAG, "Using the binary flag catalog, " + source.size() + " flags.");
+            return source;
+        } catch (IOException | IllegalArgumentException e) {
+            Log.w(TAG, "Binary flag catalog unavailable, falling back to SQLite", e);
+            return null;
+        }
+    }
+
+    /**
+     * Maps {@code assetName} read-only, or reads it into a direct buffer if it is stored compressed.
+     */
+    static ByteBuffer mapAsset(AssetManager assets, String assetName) throws IOException {
+        try (AssetFileDescriptor afd = assets.openFd(assetName);
+             FileInputStream in = new FileInputStream(afd.getFileDescriptor());
+             FileChannel channel = in.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, afd.getStartOffset(), afd.getLength());
+        } catch (FileNotFoundException compressed) {
+            // openFd only works for uncompressed assets; read a compressed one into a direct buffer
+            try (InputStream in = assets.open(assetName);
+                 ReadableByteChannel channel = Channels.newChannel(in)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(in.available(), 1));
+                while (channel.read(buffer) >= 0) {
+                    if (!buffer.hasRemaining()) {
+                        ByteBuffer larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+                        buffer.flip();
+                        larger.put(buffer);
+                        buffer = larger;
+                    }
+                }
+                buffer.flip();
+                return buffer;
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.tds.flagquiz;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Per-flag learning statistics (how often each flag was answered, answered correctly and
+ * skipped, and when it was last seen) and the history of finished quizzes.
+ * <p>
+ * Write-behind: outcomes are only appended to an in-memory {@link FlagStatsBuffer} while the
+ * quiz runs, so answer taps never wait on the disk. {@link #flushAsync()} writes everything
+ * buffered, including finished quizzes, in a single transaction on a background thread;
+ * QuizActivity calls it when the quiz ends and in onStop. Reads run on the same thread, after
+ * any pending flush, so they always see the quiz that was just finished.
+ */
+public final class FlagStatsStore {
+
+    private static final String TAG = "FlagStatsStore";
+
+    private static volatile FlagStatsStore instance;
+
+    private final StatsDatabaseHelper dbHelper;
+    private final FlagStatsBuffer buffer = new FlagStatsBuffer();
+    private final List<QuizTotals> pendingQuizzes = new ArrayList<>(); // Guarded by itself
+    private final ExecutorService writeExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Receives the quiz summaries on the main thread.
+     */
+    public interface SummaryCallback {
+        void onSummaries(QuizTotals lifetime, QuizTotals recent);
+    }
+
+    public static FlagStatsStore getInstance(Context context) {
+        FlagStatsStore store = instance;
+        if (store == null) {
+            synchronized (FlagStatsStore.class) {
+                store = instance;
+                if (store == null) {
+                    store = new FlagStatsStore(context.getApplicationContext());
+                    instance = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    private FlagStatsStore(Context appContext) {
+        dbHelper = new StatsDatabaseHelper(appContext);
+    }
+
+    public void recordAnswer(int flagId, boolean correct) {
+        buffer.record(flagId, correct ? FlagStatsBuffer.OUTCOME_CORRECT : FlagStatsBuffer.OUTCOME_WRONG,
+                System.currentTimeMillis());
+    }
+
+    public void recordSkip(int flagId) {
+        buffer.record(flagId, FlagStatsBuffer.OUTCOME_SKIPPED, System.currentTimeMillis());
+    }
+
+    /**
+     * Adds a finished quiz to the history on the next flush.
+     *
+     * @param questions Questions the player reached, which is fewer than planned after an early submit.
+     */
+    public void recordQuiz(int questions, int correct, int wrong, int skipped) {
+        synchronized (pendingQuizzes) {
+            pendingQuizzes.add(new QuizTotals(1, questions, correct, wrong, skipped));
+        }
+    }
+
+    /**
+     * Writes everything recorded so far in the background. Cheap to call when nothing is buffered.
+     */
+    public void flushAsync() {
+        FlagStatsBuffer.Batch batch = buffer.drain();
+        List<QuizTotals> quizzes;
+        synchronized (pendingQuizzes) {
+            quizzes = pendingQuizzes.isEmpty() ? null : new ArrayList<>(pendingQuizzes);
+            pendingQuizzes.clear();
+        }
+        if (batch == null && quizzes == null) {
+            return;
+        }
+        writeExecutor.execute(() -> write(batch, quizzes));
+    }
+
+    /**
+     * Reads the lifetime and recent-window quiz summaries in the background, after any pending
+     * flush, and delivers them on the main thread. Each is one row kept up to date on insert,
+     * so this does not depend on the length of the history.
+     */
+    public void loadSummariesAsync(SummaryCallback callback) {
+        writeExecutor.execute(() -> {
+            QuizTotals lifetime = QuizTotals.EMPTY;
+            QuizTotals recent = QuizTotals.EMPTY;
+            try (Cursor cursor = dbHelper.getReadableDatabase().rawQuery("SELECT " +
+                    StatsDatabaseHelper.COLUMN_SCOPE + ", " + StatsDatabaseHelper.COLUMN_QUIZZES + ", " +
+                    StatsDatabaseHelper.COLUMN_QUESTIONS + ", " + StatsDatabaseHelper.COLUMN_CORRECT + ", " +
+                    StatsDatabaseHelper.COLUMN_WRONG + ", " + StatsDatabaseHelper.COLUMN_SKIPPED +
+                    " FROM " + StatsDatabaseHelper.TABLE_QUIZ_SUMMARY, null)) {
+                while (cursor.moveToNext()) {
+                    QuizTotals totals = new QuizTotals(cursor.getInt(1), cursor.getInt(2), cursor.getInt(3),
+                            cursor.getInt(4), cursor.getInt(5));
+                    if (StatsDatabaseHelper.SCOPE_LIFETIME.equals(cursor.getString(0))) {
+                        lifetime = totals;
+                    } else if (StatsDatabaseHelper.SCOPE_RECENT.equals(cursor.getString(0))) {
+                        recent = totals;
+                    }
+                }
+            } catch (SQLException e) {
+                Log.e(TAG, "Could not read quiz summaries", e);
+            }
+            QuizTotals lifetimeTotals = lifetime;
+            QuizTotals recentTotals = recent;
+            mainThreadHandler.post(() -> callback.onSummaries(lifetimeTotals, recentTotals));
+        });
+    }
+
+    private void write(FlagStatsBuffer.Batch batch, List<QuizTotals> quizzes) {
+        long start = Tracing.begin("FlagStatsStore.flush");
+        try {
+            SQLiteDatabase db = dbHelper.getWritableDatabase();
+            // Minimum SQLite on API 23 predates UPSERT, so make sure the row exists, then add to it
+            try (SQLiteStatement insert = db.compileStatement("INSERT OR IGNORE INTO " + StatsDatabaseHelper.TABLE_FLAG_STATS +
+                         " (" + StatsDatabaseHelper.COLUMN_FLAG_ID + ") VALUES (?)");
+                 SQLiteStatement update = db.compileStatement("UPDATE " + StatsDatabaseHelper.TABLE_FLAG_STATS + " SET " +
+                         StatsDatabaseHelper.COLUMN_ATTEMPTS + " = " + StatsDatabaseHelper.COLUMN_ATTEMPTS + " + ?, " +
+                         StatsDatabaseHelper.COLUMN_CORRECT + " = " + StatsDatabaseHelper.COLUMN_CORRECT + " + ?, " +
+                         StatsDatabaseHelper.COLUMN_SKIPPED + " = " + StatsDatabaseHelper.COLUMN_SKIPPED + " + ?, " +
+                         StatsDatabaseHelper.COLUMN_LAST_SEEN + " = max(" + StatsDatabaseHelper.COLUMN_LAST_SEEN + ", ?)" +
+                         " WHERE " + StatsDatabaseHelper.COLUMN_FLAG_ID + " = ?")) {
+                db.beginTransaction();
+                try {
+                    for (int i = 0; batch != null && i < batch.size(); i++) {
+                        byte outcome = batch.outcomes[i];
+                        insert.bindLong(1, batch.flagIds[i]);
+                        insert.executeInsert();
+
+                        update.bindLong(1, outcome == FlagStatsBuffer.OUTCOME_SKIPPED ? 0 : 1);
+                        update.bindLong(2, outcome == FlagStatsBuffer.OUTCOME_CORRECT ? 1 : 0);
+                        update.bindLong(3, outcome == FlagStatsBuffer.OUTCOME_SKIPPED ? 1 : 0);
+                        update.bindLong(4, batch.timesMillis[i]);
+                        update.bindLong(5, batch.flagIds[i]);
+                        update.executeUpdateDelete();
+                    }
+                    if (quizzes != null) {
+                        writeQuizzes(db, quizzes);
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+            Log.d(TAG, "Flushed " + (batch != null ? batch.size() : 0) + " flag outcomes and " +
+                    (quizzes != null ? quizzes.size() : 0) + " quizzes.");
+        } catch (SQLException e) {
+            Log.e(TAG, "Could not write flag stats, the buffered outcomes are lost", e);
+        } finally {
+            Tracing.end(Tracing.STATS_FLUSH, start);
+        }
+    }
+
+    // The insert trigger keeps quiz_summary up to date
+    private static void writeQuizzes(SQLiteDatabase db, List<QuizTotals> quizzes) {
+        try (SQLiteStatement insert = db.compileStatement("INSERT INTO " + StatsDatabaseHelper.TABLE_QUIZ_HISTORY + " (" +
+                StatsDatabaseHelper.COLUMN_FINISHED_AT + ", " + StatsDatabaseHelper.COLUMN_QUESTIONS + ", " +
+                StatsDatabaseHelper.COLUMN_CORRECT + ", " + StatsDatabaseHelper.COLUMN_WRONG + ", " +
+                StatsDatabaseHelper.COLUMN_SKIPPED + ") VALUES (?, ?, ?, ?, ?)")) {
+            for (QuizTotals quiz : quizzes) {
+                insert.bindLong(1, quiz.finishedAtMillis);
+                insert.bindLong(2, quiz.questions);
+                insert.bindLong(3, quiz.correct);
+                insert.bindLong(4, quiz.wrong);
+                insert.bindLong(5, quiz.skipped);
+                insert.executeInsert();
+            }
+        }
+    }
+
+    /**
+     * Totals over one or more quizzes.
+     */
+    public static final class QuizTotals {
+        static final QuizTotals EMPTY = new QuizTotals(0, 0, 0, 0, 0);
+
+        public final int quizzes;
+        public final int questions;
+        public final int correct;
+        public final int wrong;
+        public final int skipped;
+        final long finishedAtMillis;
+
+        QuizTotals(int quizzes, int questions, int correct, int wrong, int skipped) {
+            this.quizzes = quizzes;
+            this.questions = questions;
+            this.correct = correct;
+            this.wrong = wrong;
+            this.skipped = skipped;
+            this.finishedAtMillis = System.currentTimeMillis();
+        }
+
+        /**
+         * @return Correct answers as a percentage of questions, 0 if there were none.
+         */
+        public double getAccuracyPercent() {
+            return questions > 0 ? 100.0 * correct / questions : 0;
+        }
+    }
+}
@@ -3,12 +3,24 @@ package com.tds.flagquiz;
 import android.database.Cursor;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
+import android.os.StrictMode;
 import android.util.Log;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
-public class FlagsDAO {
+/**
+ * Reads flags from the bundled flag database, or from a content pack attached to it.
+ * <p>
+ * Every query first calls {@link StrictMode#noteSlowCall(String)} with its name: SQLite I/O runs
+ * in native code that StrictMode cannot see, so that is what makes a query on the main thread
+ * show up in the debug main-thread report ({@link MainThreadReport}). Release builds set no
+ * policy, so there it costs a thread-local read.
+ */
+public class FlagsDAO implements FlagSource {
 
     private static final String TAG = "FlagsDAO";
 
@@ -18,173 +30,305 @@ public class FlagsDAO {
     public static final String COLUMN_FLAG_NAME = "flag_name";
     public static final String COLUMN_FLAG_IMAGE = "flag_image";
 
+    // Localized names: one row per flag and locale, same flag_id and flag_name columns
+    public static final String NAMES_TABLE_NAME = "flag_names";
+    public static final String COLUMN_LOCALE = "locale";
+
+    // Random probes that land on a missing flag_id are retried this many times before
+    // settling for the next id up; with a dense id range almost every probe hits first time.
+    private static final int MAX_PROBE_RETRIES = 4;
+
+    // Statements for the rowid probes, compiled on first use and reused.
+    // SQLiteStatement is not thread-safe, so every use is synchronized on this DAO.
+    private final Random random = new Random();
+    private SQLiteStatement nextIdStatement;
+    private SQLiteStatement nameStatement;
+    private SQLiteStatement imageStatement;
+    private long minFlagId;
+    private long maxFlagId;
+
+    private final SQLiteDatabase db;
+    private final String table; // flagquiztable, qualified with the schema of an attached content pack
+    private final int idBase;   // Added to the stored flag_id to make the id used everywhere else
+
     /**
-     * Retrieves a specified number of random flag questions from the database.
-     *
-     * @param fd         The FlagsDatabase helper instance.
-     * @param limit      The maximum number of random questions to retrieve.
-     * @return A List of FlagsModel objects, or an empty list if an error occurs or no data is found.
+     * @param db The open flag database connection this DAO reads from.
      */
+    public FlagsDAO(SQLiteDatabase db) {
+        this.db = db;
+        this.table = TABLE_NAME;
+        this.idBase = 0;
+    }
 
-    public List<FlagsModel> getRandomQuestions(FlagsDatabase fd, int limit) {
-        List<FlagsModel> modelList = new ArrayList<>();
-        SQLiteDatabase db = null;
+    /**
+     * Reads the {@code flagquiztable} of a content pack attached to {@code db}. Flag ids are
+     * returned and taken as app-wide ids, see {@link ContentPack#globalId(int, int)}.
+     */
+    public FlagsDAO(SQLiteDatabase db, ContentPack pack) {
+        this.db = db;
+        this.table = pack.getSchemaName() + "." + TABLE_NAME;
+        this.idBase = ContentPack.globalId(pack.getId(), 0);
+    }
+
+    /**
+     * Reads the whole of {@code flagquiztable} into a new FlagCatalog.
+     *
+     * @return The catalog, or null if an error occurs or the table is empty.
+     */
+    @Override
+    public FlagCatalog loadCatalog() {
+        StrictMode.noteSlowCall("FlagsDAO.loadCatalog");
         Cursor cursor = null;
+        try {
+            String query = "SELECT " + COLUMN_FLAG_ID + ", " + COLUMN_FLAG_NAME + ", " + COLUMN_FLAG_IMAGE +
+                    " FROM " + table;
+            cursor = db.rawQuery(query, null);
 
-        if (limit <= 0) {
-            Log.w(TAG, "getRandomQuestions: Limit cannot be zero or negative. Returning empty list.");
-            return modelList; // Return empty list if limit is invalid
-        }
+            int count = cursor.getCount();
+            if (count == 0) {
+                Log.d(TAG, "loadCatalog: No flags found.");
+                return null;
+            }
 
-        try {
-            db = fd.getReadableDatabase(); // Use readable database for select operations
+            int[] ids = new int[count];
+            String[] names = new String[count];
+            String[] images = new String[count];
+            int flagIdIndex = cursor.getColumnIndexOrThrow(COLUMN_FLAG_ID);
+            int flagNameIndex = cursor.getColumnIndexOrThrow(COLUMN_FLAG_NAME);
+            int flagImageIndex = cursor.getColumnIndexOrThrow(COLUMN_FLAG_IMAGE);
 
-            // Use selection arguments for safety and clarity, though RANDOM() doesn't directly benefit from it.
-            // The main benefit here is consistency and if 'limit' were a string.
-            // String query = "SELECT * FROM " + TABLE_NAME + " ORDER BY RANDOM() LIMIT ?";
-            // Using direct concatenation for LIMIT as it's a number and part of SQL standard syntax.
-            // For general parameters, placeholders are preferred.
-            String query = "SELECT " + COLUMN_FLAG_ID + ", " + COLUMN_FLAG_NAME + ", " + COLUMN_FLAG_IMAGE +
-                    " FROM " + TABLE_NAME +
-                    " ORDER BY RANDOM() LIMIT " + limit;
-
-            cursor = db.rawQuery(query, null); // No selection args needed for this specific query structure
-
-            if (cursor != null && cursor.moveToFirst()) { // Check if cursor is not null and has data
-                int flagIdIndex = cursor.getColumnIndexOrThrow(COLUMN_FLAG_ID);
-                int flagNameIndex = cursor.getColumnIndexOrThrow(COLUMN_FLAG_NAME);
-                int flagImageIndex = cursor.getColumnIndexOrThrow(COLUMN_FLAG_IMAGE);
-
-                do {
-                    FlagsModel model = new FlagsModel(
-                            cursor.getInt(flagIdIndex),
-                            cursor.getString(flagNameIndex),
-                            cursor.getString(flagImageIndex)
-                    );
-                    modelList.add(model);
-                } while (cursor.moveToNext());
-            } else {
-                Log.d(TAG, "getRandomQuestions: No flags found or cursor is empty.");
+            int row = 0;
+            while (cursor.moveToNext() && row < count) {
+                ids[row] = idBase + cursor.getInt(flagIdIndex);
+                names[row] = internOrEmpty(cursor.getString(flagNameIndex));
+                images[row] = internOrEmpty(cursor.getString(flagImageIndex));
+                row++;
             }
+            Log.d(TAG, "loadCatalog: Loaded " + row + " flags.");
+            return new FlagCatalog(ids, names, images);
         } catch (SQLException e) {
-            Log.e(TAG, "Error getting random questions from database", e);
-            // Depending on the app's requirements, you might re-throw a custom exception
-            // or return an empty list as is currently done.
+            Log.e(TAG, "Error loading flag catalog from database", e);
+            return null;
         } finally {
             if (cursor != null) {
                 cursor.close();
             }
-            // SQLiteOpenHelper manages the closing of the database instance itself when the helper is closed.
-            // So, typically you don't call db.close() here if db was obtained from the helper.
-            // The helper's close() method (which you'd call when your DAO/Activity is done) handles it.
         }
-        return modelList;
+    }
+
+    private static String internOrEmpty(String value) {
+        return value != null ? value.intern() : "";
     }
 
     /**
-     * Retrieves a specified number of random flag options, excluding a specific flag ID.
+     * Retrieves a specified number of random flag questions by random flag_id probes.
+     *
+     * @param limit      The maximum number of random questions to retrieve.
+     * @return A List of FlagsModel objects, or an empty list if an error occurs or no data is found.
+     */
+    @Override
+    public List<FlagsModel> getRandomQuestions(int limit) {
+        StrictMode.noteSlowCall("FlagsDAO.getRandomQuestions");
+        if (limit <= 0) {
+            Log.w(TAG, "getRandomQuestions: Limit cannot be zero or negative. Returning empty list.");
+            return new ArrayList<>(); // Return empty list if limit is invalid
+        }
+        return probeRandomFlags(null, limit);
+    }
+
+    /**
+     * Retrieves a specified number of random flag options, excluding a specific flag ID, by random
+     * flag_id probes.
      *
-     * @param fd                The FlagsDatabase helper instance.
      * @param excludedFlagId    The ID of the flag to exclude from the options.
      * @param numberOfOptions   The number of random options to retrieve.
      * @return A List of FlagsModel objects for the options, or an empty list if an error occurs or no data.
      */
-    public List<FlagsModel> getRandomOptions(FlagsDatabase fd, int excludedFlagId, int numberOfOptions) {
-        List<FlagsModel> modelList = new ArrayList<>();
-        SQLiteDatabase db = null;
-        Cursor cursor = null;
-
+    @Override
+    public List<FlagsModel> getRandomOptions(int excludedFlagId, int numberOfOptions) {
+        StrictMode.noteSlowCall("FlagsDAO.getRandomOptions");
         if (numberOfOptions <= 0) {
             Log.w(TAG, "getRandomOptions: Number of options cannot be zero or negative. Returning empty list.");
-            return modelList;
+            return new ArrayList<>();
         }
+        return probeRandomFlags(new long[]{excludedFlagId - idBase}, numberOfOptions);
+    }
 
+    /**
+     * Reads the names of every flag in one locale from {@code flag_names}. Only that locale's
+     * range of the primary key is read.
+     */
+    @Override
+    public String[] loadLocalizedNames(String locale, FlagCatalog catalog) {
+        StrictMode.noteSlowCall("FlagsDAO.loadLocalizedNames");
+        Cursor cursor = null;
         try {
-            db = fd.getReadableDatabase();
+            cursor = db.rawQuery("SELECT " + COLUMN_FLAG_ID + ", " + COLUMN_FLAG_NAME + " FROM " + NAMES_TABLE_NAME +
+                    " WHERE " + COLUMN_LOCALE + " = ?", new String[]{locale});
+            if (cursor.getCount() == 0) {
+                Log.d(TAG, "loadLocalizedNames: No names for locale " + locale);
+                return null;
+            }
+            String[] names = new String[catalog.size()];
+            while (cursor.moveToNext()) {
+                int row = catalog.indexOf(cursor.getInt(0));
+                if (row >= 0) {
+                    names[row] = cursor.getString(1);
+                }
+            }
+            Log.d(TAG, "loadLocalizedNames: Loaded " + cursor.getCount() + " names for locale " + locale);
+            return names;
+        } catch (SQLException e) {
+            Log.e(TAG, "Error loading localized flag names from database", e);
+            return null;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
 
-            String query = "SELECT " + COLUMN_FLAG_ID + ", " + COLUMN_FLAG_NAME + ", " + COLUMN_FLAG_IMAGE +
-                    " FROM " + TABLE_NAME +
-                    " WHERE " + COLUMN_FLAG_ID + " != ?" +
-                    " ORDER BY RANDOM() LIMIT ?";
-
-            String[] selectionArgs = {String.valueOf(excludedFlagId), String.valueOf(numberOfOptions)};
-
-            cursor = db.rawQuery(query, selectionArgs);
-
-            if (cursor != null && cursor.moveToFirst()) {
-                // Re-fetch column indices as it's a new cursor, or make them member variables if always the same
-                int flagIdIndex = cursor.getColumnIndexOrThrow(COLUMN_FLAG_ID);
-                int flagNameIndex = cursor.getColumnIndexOrThrow(COLUMN_FLAG_NAME);
-                int flagImageIndex = cursor.getColumnIndexOrThrow(COLUMN_FLAG_IMAGE);
-
-                do {
-                    FlagsModel model = new FlagsModel(
-                            cursor.getInt(flagIdIndex),
-                            cursor.getString(flagNameIndex),
-                            cursor.getString(flagImageIndex)
-                    );
-                    modelList.add(model);
-                } while (cursor.moveToNext());
+    /**
+     * Retrieves the flags after ({@code afterName}, {@code afterFlagId}) in name order. The range
+     * condition walks the flag_name index, which holds the rowid, so no page sorts the table.
+     */
+    @Override
+    public List<FlagsModel> getPageByName(String afterName, int afterFlagId, int limit) {
+        StrictMode.noteSlowCall("FlagsDAO.getPageByName");
+        List<FlagsModel> modelList = new ArrayList<>();
+        if (limit <= 0) {
+            Log.w(TAG, "getPageByName: Limit cannot be zero or negative. Returning empty list.");
+            return modelList;
+        }
+        String columns = "SELECT " + COLUMN_FLAG_ID + ", " + COLUMN_FLAG_NAME + ", " + COLUMN_FLAG_IMAGE +
+                " FROM " + table;
+        String order = " ORDER BY " + COLUMN_FLAG_NAME + ", " + COLUMN_FLAG_ID + " LIMIT ?";
+        Cursor cursor = null;
+        try {
+            if (afterName == null) {
+                cursor = db.rawQuery(columns + order, new String[]{String.valueOf(limit)});
             } else {
-                Log.d(TAG, "getRandomOptions: No options found for excluded ID " + excludedFlagId + " or cursor is empty.");
+                cursor = db.rawQuery(columns +
+                                " WHERE " + COLUMN_FLAG_NAME + " >= ?" +
+                                " AND (" + COLUMN_FLAG_NAME + " > ? OR " + COLUMN_FLAG_ID + " > ?)" + order,
+                        new String[]{afterName, afterName, String.valueOf(afterFlagId - idBase), String.valueOf(limit)});
+            }
+            while (cursor.moveToNext()) {
+                modelList.add(new FlagsModel(idBase + cursor.getInt(0), internOrEmpty(cursor.getString(1)), internOrEmpty(cursor.getString(2))));
             }
         } catch (SQLException e) {
-            Log.e(TAG, "Error getting random options from database for excluded ID " + excludedFlagId, e);
+            Log.e(TAG, "Error reading a page of flags from database", e);
         } finally {
             if (cursor != null) {
                 cursor.close();
             }
-            // db from helper, no explicit close needed here.
         }
         return modelList;
     }
 
-    // You could potentially add a private helper method to reduce cursor processing duplication
-    // if you had many more similar methods, but for two it's acceptable.
-    // private FlagsModel cursorToFlagModel(Cursor cursor, int idIdx, int nameIdx, int imgIdx) {
-    //     return new FlagsModel(cursor.getInt(idIdx), cursor.getString(nameIdx), cursor.getString(imgIdx));
-    // }
-
-
-//    public ArrayList<FlagsModel> getRandomTenQuestion(FlagsDatabase fd)
-//    {
-//        ArrayList<FlagsModel> modelArrayList = new ArrayList<>();
-//        SQLiteDatabase liteDatabase = fd.getWritableDatabase();
-//        Cursor cursor = liteDatabase.rawQuery("SELECT * FROM flagquiztable ORDER BY RANDOM () LIMIT "+QuizActivity.TOTAL_NUMBER_OF_FLAGS,null);
-//
-//        int flagIdIndex = cursor.getColumnIndex("flag_id");
-//        int flagNameIndex = cursor.getColumnIndex("flag_name");
-//        int flagImageIndex = cursor.getColumnIndex("flag_image");
-//
-//        while (cursor.moveToNext())
-//        {
-//            FlagsModel model = new FlagsModel(cursor.getInt(flagIdIndex)
-//                    ,cursor.getString(flagNameIndex)
-//                    ,cursor.getString(flagImageIndex));
-//
-//            modelArrayList.add(model);
-//        }
-//        return modelArrayList;
-//    }
-
-//    public ArrayList<FlagsModel> getRandomThreeOptions(FlagsDatabase fd, int flag_id)
-//    {
-//        ArrayList<FlagsModel> modelArrayList = new ArrayList<>();
-//        SQLiteDatabase liteDatabase = fd.getWritableDatabase();
-//        Cursor cursor = liteDatabase.rawQuery("SELECT * FROM flagquiztable WHERE flag_id !="+flag_id+" ORDER BY RANDOM () LIMIT 3",null);
-//
-//        int flagIdIndex = cursor.getColumnIndex("flag_id");
-//        int flagNameIndex = cursor.getColumnIndex("flag_name");
-//        int flagImageIndex = cursor.getColumnIndex("flag_image");
-//
-//        while (cursor.moveToNext())
-//        {
-//            FlagsModel model = new FlagsModel(cursor.getInt(flagIdIndex)
-//                    ,cursor.getString(flagNameIndex)
-//                    ,cursor.getString(flagImageIndex));
-//
-//            modelArrayList.add(model);
-//        }
-//        return modelArrayList;
-//    }
+    /**
+     * Picks distinct random flags by probing random flag_id values through the primary key.
+     * Each probe is an O(log n) B-tree search, so the cost depends on {@code count}, not on the
+     * size of the table, unlike {@code ORDER BY RANDOM()}.
+     */
+    private synchronized List<FlagsModel> probeRandomFlags(long[] excludedIds, int count) {
+        List<FlagsModel> modelList = new ArrayList<>();
+        try {
+            prepareProbeStatements();
+            if (maxFlagId < minFlagId) {
+                Log.d(TAG, "probeRandomFlags: No flags found.");
+                return modelList;
+            }
+
+            long[] seen = new long[count];
+            int found = 0;
+            // Bounded so that a table with fewer usable rows than requested cannot loop forever
+            int attemptsLeft = count * 8 + 8;
+            while (found < count && attemptsLeft-- > 0) {
+                long flagId = probeFlagId();
+                if (contains(excludedIds, excludedIds == null ? 0 : excludedIds.length, flagId)
+                        || contains(seen, found, flagId)) {
+                    continue;
+                }
+                seen[found++] = flagId;
+                modelList.add(new FlagsModel(idBase + (int) flagId, queryText(nameStatement, flagId), queryText(imageStatement, flagId)));
+            }
+        } catch (SQLException e) {
+            Log.e(TAG, "Error probing random flags from database", e);
+        }
+        return modelList;
+    }
+
+    // Returns the flag_id at a uniformly random point in [min, max]; misses on gaps are retried,
+    // then resolved to the next id up.
+    private long probeFlagId() {
+        long flagId = 0;
+        for (int attempt = 0; attempt <= MAX_PROBE_RETRIES; attempt++) {
+            long target = minFlagId + (long) (random.nextDouble() * (maxFlagId - minFlagId + 1));
+            nextIdStatement.bindLong(1, target);
+            flagId = nextIdStatement.simpleQueryForLong();
+            if (flagId == target) {
+                break;
+            }
+        }
+        return flagId;
+    }
+
+    private void prepareProbeStatements() {
+        if (nextIdStatement != null) {
+            return;
+        }
+
+        // min/max on the rowid alias are read straight off the ends of the B-tree
+        try (SQLiteStatement bounds = db.compileStatement("SELECT ifnull(min(" + COLUMN_FLAG_ID + "), 1) FROM " + table)) {
+            minFlagId = bounds.simpleQueryForLong();
+        }
+        try (SQLiteStatement bounds = db.compileStatement("SELECT ifnull(max(" + COLUMN_FLAG_ID + "), 0) FROM " + table)) {
+            maxFlagId = bounds.simpleQueryForLong();
+        }
+        nextIdStatement = db.compileStatement("SELECT " + COLUMN_FLAG_ID + " FROM " + table +
+                " WHERE " + COLUMN_FLAG_ID + " >= ? ORDER BY " + COLUMN_FLAG_ID + " LIMIT 1");
+        nameStatement = db.compileStatement("SELECT " + COLUMN_FLAG_NAME + " FROM " + table +
+                " WHERE " + COLUMN_FLAG_ID + " = ?");
+        imageStatement = db.compileStatement("SELECT " + COLUMN_FLAG_IMAGE + " FROM " + table +
+                " WHERE " + COLUMN_FLAG_ID + " = ?");
+    }
+
+    private static String queryText(SQLiteStatement statement, long flagId) {
+        statement.bindLong(1, flagId);
+        try {
+            String value = statement.simpleQueryForString();
+            return value != null ? value : "";
+        } catch (SQLiteDoneException e) {
+            return "";
+        }
+    }
+
+    private static boolean contains(long[] values, int length, long value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void releaseProbeStatements() {
+        if (nextIdStatement != null) {
+            nextIdStatement.close();
+            nameStatement.close();
+            imageStatement.close();
+            nextIdStatement = null;
+            nameStatement = null;
+            imageStatement = null;
+        }
+    }
+
+    /**
+     * Releases the compiled statements. Call before closing the database connection.
+     */
+    @Override
+    public synchronized void close() {
+        releaseProbeStatements();
+    }
 }
@@ -0,0 +1,88 @@
+package com.tds.flagquiz;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+/**
+ * Schema of {@code flagquiztable} and the migrations between its versions.
+ * Applied by DatabaseCopyHelper when it opens flagquizdb.db, and matched by the
+ * {@code user_version} of the database bundled in assets.
+ */
+public final class FlagsSchema {
+
+    private static final String TAG = "FlagsSchema";
+
+    /**
+     * Version history:
+     * 1 - flag_id is a plain INTEGER column, no keys or indexes.
+     * 2 - flag_id is the INTEGER PRIMARY KEY (rowid alias), so lookups, exclusions and
+     *     random probes by id are B-tree searches instead of full table scans.
+     * 3 - Index on flag_name, so the gallery pages through flags in name order by walking the
+     *     index instead of sorting the whole table for every page.
+     * 4 - flag_names side table: the name of each flag per locale, keyed by (locale, flag_id)
+     *     so the names of one locale are a single range of the primary key.
+     */
+    public static final int VERSION = 4;
+
+    static final String NAME_INDEX = FlagsDAO.TABLE_NAME + "_" + FlagsDAO.COLUMN_FLAG_NAME;
+
+    static final String CREATE_NAMES_TABLE = "CREATE TABLE IF NOT EXISTS \"" + FlagsDAO.NAMES_TABLE_NAME + "\" (\n" +
+            "\t\"" + FlagsDAO.COLUMN_FLAG_ID + "\"\tINTEGER NOT NULL,\n" +
+            "\t\"" + FlagsDAO.COLUMN_LOCALE + "\"\tTEXT NOT NULL,\n" +
+            "\t\"" + FlagsDAO.COLUMN_FLAG_NAME + "\"\tTEXT NOT NULL,\n" +
+            "\tPRIMARY KEY (\"" + FlagsDAO.COLUMN_LOCALE + "\", \"" + FlagsDAO.COLUMN_FLAG_ID + "\")\n" +
+            ") WITHOUT ROWID;";
+
+    static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS \"" + FlagsDAO.TABLE_NAME + "\" (\n" +
+            "\t\"" + FlagsDAO.COLUMN_FLAG_ID + "\"\tINTEGER PRIMARY KEY,\n" +
+            "\t\"" + FlagsDAO.COLUMN_FLAG_NAME + "\"\tTEXT,\n" +
+            "\t\"" + FlagsDAO.COLUMN_FLAG_IMAGE + "\"\tTEXT\n" +
+            ");";
+
+    private FlagsSchema() {
+    }
+
+    /**
+     * Called from onCreate. A database at user_version 0 is either a new empty file or a copy
+     * of the bundled database from before it was versioned (schema 1), so bring whichever it is
+     * up to date.
+     */
+    public static void create(SQLiteDatabase db) {
+        migrate(db, 1, VERSION);
+    }
+
+    /**
+     * Brings {@code flagquiztable} from {@code oldVersion} up to {@code newVersion}, keeping its rows.
+     * SQLiteOpenHelper already runs onUpgrade inside a transaction.
+     */
+    public static void migrate(SQLiteDatabase db, int oldVersion, int newVersion) {
+        Log.i(TAG, "Migrating " + FlagsDAO.TABLE_NAME + " from version " + oldVersion + " to " + newVersion);
+        if (oldVersion < 2 && newVersion >= 2) {
+            migrateToPrimaryKey(db);
+        }
+        if (oldVersion < 3 && newVersion >= 3) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS " + NAME_INDEX +
+                    " ON " + FlagsDAO.TABLE_NAME + " (" + FlagsDAO.COLUMN_FLAG_NAME + ")");
+        }
+        if (oldVersion < 4 && newVersion >= 4) {
+            // Left empty here: the names ship in the bundled database, and flags without a row keep their stored name
+            db.execSQL(CREATE_NAMES_TABLE);
+        }
+    }
+
+    // SQLite cannot add a primary key to an existing table, so rebuild it and copy the rows over.
+    private static void migrateToPrimaryKey(SQLiteDatabase db) {
+        String table = FlagsDAO.TABLE_NAME;
+        String columns = FlagsDAO.COLUMN_FLAG_ID + ", " + FlagsDAO.COLUMN_FLAG_NAME + ", " + FlagsDAO.COLUMN_FLAG_IMAGE;
+
+        db.execSQL(CREATE_TABLE); // Nothing to migrate from if the table was never created
+        db.execSQL("DROP TABLE IF EXISTS " + table + "_v2");
+        db.execSQL(CREATE_TABLE.replace("\"" + table + "\"", "\"" + table + "_v2\""));
+        // Rows without an id, or repeating one, cannot be keyed and are dropped
+        db.execSQL("INSERT OR IGNORE INTO " + table + "_v2 (" + columns + ")" +
+                " SELECT " + columns + " FROM " + table +
+                " WHERE " + FlagsDAO.COLUMN_FLAG_ID + " IS NOT NULL");
+        db.execSQL("DROP TABLE " + table);
+        db.execSQL("ALTER TABLE " + table + "_v2 RENAME TO " + table);
+    }
+}
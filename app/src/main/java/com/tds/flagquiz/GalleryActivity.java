@@ -0,0 +1,134 @@
+package com.tds.flagquiz;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.ProgressBar;
+
+import java.util.List;
+
+/**
+ * Lists every flag with its name and a thumbnail. All flags are read a page at a time in name
+ * order; typing in the search box filters them through the in-memory {@link FlagNameIndex}, so
+ * a keystroke never waits on the database.
+ */
+public class GalleryActivity extends AppCompatActivity {
+
+    private static final String TAG = "GalleryActivity";
+
+    private static final int PAGE_SIZE = 40;
+
+    private EditText searchField;
+    private ProgressBar progressBar;
+    private FlagGalleryAdapter adapter;
+
+    private FlagRepository flagRepository;
+    private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+    private final Generation loadGeneration = new Generation(); // Advanced in onDestroy so late pages are ignored
+
+    // Available once loaded in the background; searched on the main thread only
+    private FlagCatalog catalog;
+    private FlagNameIndex nameIndex;
+    private int[] matches;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_gallery);
+
+        searchField = findViewById(R.id.gallery_search);
+        progressBar = findViewById(R.id.gallery_progress);
+        RecyclerView flagList = findViewById(R.id.gallery_list);
+
+        flagRepository = FlagRepository.getInstance(this);
+        adapter = new FlagGalleryAdapter(FlagImageLoader.getInstance(this), this::loadPage);
+        flagList.setLayoutManager(new LinearLayoutManager(this));
+        flagList.setHasFixedSize(true); // Rows are all the same height, so no relayout when pages arrive
+        flagList.setAdapter(adapter);
+
+        searchField.setEnabled(false); // Until the name index is ready
+        searchField.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                filter(s.toString());
+            }
+        });
+
+        loadPage(null);
+        loadNameIndex();
+    }
+
+    private void loadPage(FlagsModel last) {
+        int token = loadGeneration.get();
+        String afterName = last != null ? last.getFlag_name() : null;
+        int afterFlagId = last != null ? last.getFlag_id() : 0;
+        AppExecutors.background().execute(PriorityExecutor.PRIORITY_INTERACTIVE, loadGeneration, token, () -> {
+            List<FlagsModel> page = flagRepository.getFlagPage(afterName, afterFlagId, PAGE_SIZE);
+            mainThreadHandler.post(() -> {
+                if (!loadGeneration.isCurrent(token)) {
+                    return; // This screen is gone
+                }
+                progressBar.setVisibility(View.GONE);
+                adapter.addPage(page, PAGE_SIZE);
+                Log.d(TAG, "Loaded " + page.size() + " flags after " + afterName);
+            });
+        });
+    }
+
+    private void loadNameIndex() {
+        int token = loadGeneration.get();
+        // Behind the first page: the list matters before the search box does
+        AppExecutors.background().execute(PriorityExecutor.PRIORITY_NORMAL, loadGeneration, token, () -> {
+            FlagCatalog loadedCatalog = flagRepository.getCatalog();
+            FlagNameIndex index = flagRepository.getNameIndex();
+            mainThreadHandler.post(() -> {
+                if (!loadGeneration.isCurrent(token) || index == null) {
+                    return;
+                }
+                catalog = loadedCatalog;
+                nameIndex = index;
+                matches = new int[index.size()];
+                searchField.setEnabled(true);
+                filter(searchField.getText().toString());
+            });
+        });
+    }
+
+    private void filter(String query) {
+        if (nameIndex == null) {
+            return;
+        }
+        if (query.trim().isEmpty()) {
+            adapter.showMatches(null, null, 0);
+            return;
+        }
+        // Same array every keystroke: the adapter is told everything changed right after it is filled
+        int count = nameIndex.search(query, matches);
+        adapter.showMatches(catalog, matches, count);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // Queued page reads are dropped; the repository and image cache are shared and stay open
+        loadGeneration.advance();
+        mainThreadHandler.removeCallbacksAndMessages(null);
+    }
+}
@@ -1,10 +1,10 @@
 package com.tds.flagquiz;
 
 import androidx.activity.OnBackPressedCallback;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 
 import android.content.Intent;
-import android.database.SQLException;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
@@ -14,27 +14,30 @@ import android.widget.ProgressBar;
 import android.widget.Toast;
 
 import com.google.android.material.button.MaterialButton;
+import com.google.android.material.switchmaterial.SwitchMaterial;
 
-import java.io.IOException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 public class MainActivity extends AppCompatActivity {
 
     private static final String TAG = "MainActivity";
 
     private MaterialButton startQuizButton;
+    private MaterialButton browseFlagsButton;
+    private MaterialButton flagPacksButton; // Shown only if the app offers content packs
     private ProgressBar progressBar; // To show loading state
 
     private boolean isBackPressedOnce = false;
     private final Handler mainThreadHandler = new Handler(Looper.getMainLooper()); // final and initialized once
     private OnBackPressedCallback backPressedCallback;
 
-    private DatabaseCopyHelper dbHelper;
-    private ExecutorService databaseExecutor; // For background database operations
+    private FlagRepository flagRepository; // Process-wide, owns the shared database connection
+    private final Generation readyGeneration = new Generation(); // Advanced in onDestroy so a late result is ignored
 
     // Flag to indicate if database setup was successful
-    private boolean isDatabaseReady = false;
+    private volatile boolean isDatabaseReady = false; // Set from a pool thread, read on the main thread
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -42,16 +45,18 @@ public class MainActivity extends AppCompatActivity {
         setContentView(R.layout.activity_main);
 
         startQuizButton = findViewById(R.id.start_quiz_button);
+        browseFlagsButton = findViewById(R.id.browse_flags_button);
+        flagPacksButton = findViewById(R.id.flag_packs_button);
         progressBar = findViewById(R.id.progressBar);
 
         // Disable button initially until DB is ready
         startQuizButton.setEnabled(false);
+        browseFlagsButton.setEnabled(false);
         if (progressBar != null) {
             progressBar.setVisibility(View.VISIBLE); // Show progress
         }
 
-        dbHelper = new DatabaseCopyHelper(this);
-        databaseExecutor = Executors.newSingleThreadExecutor(); // Initialize executor
+        flagRepository = FlagRepository.getInstance(this);
 
         initializeDatabase(); // Call the method to handle DB setup
 
@@ -67,43 +72,115 @@ public class MainActivity extends AppCompatActivity {
             }
         });
 
+        browseFlagsButton.setOnClickListener(v -> startActivity(new Intent(MainActivity.this, GalleryActivity.class)));
+
+        // Harder quizzes: wrong answers picked from flags that look like the right one
+        SwitchMaterial similarOptionsSwitch = findViewById(R.id.similar_options_switch);
+        similarOptionsSwitch.setChecked(QuizSettings.isSimilarDistractors(this));
+        similarOptionsSwitch.setOnCheckedChangeListener((button, isChecked) ->
+                QuizSettings.setSimilarDistractors(MainActivity.this, isChecked));
+
+        // Type the country name instead of picking it; small typos are forgiven
+        SwitchMaterial typedAnswersSwitch = findViewById(R.id.typed_answers_switch);
+        typedAnswersSwitch.setChecked(QuizSettings.isTypedAnswers(this));
+        typedAnswersSwitch.setOnCheckedChangeListener((button, isChecked) ->
+                QuizSettings.setTypedAnswers(MainActivity.this, isChecked));
+
         setupBackPressedCallback();
 
     } // --------------------------------------------------------------------------------------------------
 
     private void initializeDatabase() {
-        databaseExecutor.execute(() -> {
-            try {
-                Log.d(TAG, "Initializing database...");
-                dbHelper.createAndOpenDatabase(); // This method now handles copy and open
-                isDatabaseReady = true;
-                Log.d(TAG, "Database initialized successfully.");
-
-                mainThreadHandler.post(() -> {
-                    if (progressBar != null) {
-                        progressBar.setVisibility(View.GONE);
-                    }
-                    startQuizButton.setEnabled(true);
-                    Toast.makeText(MainActivity.this, "Database ready!", Toast.LENGTH_SHORT).show();
-                });
-
-            } catch (IOException | SQLException e) {
-                isDatabaseReady = false;
-                Log.e(TAG, "Error initializing database", e);
-                mainThreadHandler.post(() -> {
-                    if (progressBar != null) {
-                        progressBar.setVisibility(View.GONE);
-                    }
-                    startQuizButton.setEnabled(false); // Keep button disabled or handle error
-                    // Show a more persistent error, maybe a TextView or a Dialog
-                    Toast.makeText(MainActivity.this, "Error initializing database: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                    // You might want to provide an option to retry or exit
-                });
+        int token = readyGeneration.advance();
+        Log.d(TAG, "Waiting for the flag data warm-up...");
+        // FlagQuizApp started installing and opening the data when the process started, so by now
+        // this is usually done or close to it. No thread waits for it; the listener is told when it is
+        ((FlagQuizApp) getApplication()).whenReady(new FlagQuizApp.ReadyListener() {
+            @Override
+            public void onReady() {
+                // The pack manifest is an asset read, so not on the warm-up thread or the main thread
+                AppExecutors.background().execute(PriorityExecutor.PRIORITY_INTERACTIVE, readyGeneration, token,
+                        () -> onDatabaseReady(token));
+            }
+
+            @Override
+            public void onFailed(Exception error) {
+                onDatabaseFailed(token, error);
             }
-            // Note: dbHelper.close() will be called in onDestroy of MainActivity
         });
     }
 
+    // On a pool thread, once the warm-up is done
+    private void onDatabaseReady(int token) {
+        isDatabaseReady = true;
+        Log.d(TAG, "Database initialized successfully.");
+        List<ContentPack> packs = ContentPackRegistry.getInstance(MainActivity.this).getAvailablePacks();
+
+        Tracing.dumpAsync(MainActivity.this); // Startup metrics, debug builds only
+
+        mainThreadHandler.post(() -> {
+            if (!readyGeneration.isCurrent(token)) {
+                return; // This screen is gone
+            }
+            if (progressBar != null) {
+                progressBar.setVisibility(View.GONE);
+            }
+            startQuizButton.setEnabled(true);
+            browseFlagsButton.setEnabled(true);
+            if (!packs.isEmpty()) {
+                flagPacksButton.setVisibility(View.VISIBLE);
+                flagPacksButton.setOnClickListener(v -> showFlagPacksDialog(packs));
+            }
+            Toast.makeText(MainActivity.this, "Database ready!", Toast.LENGTH_SHORT).show();
+        });
+        // Note: the connection belongs to FlagRepository and stays open for the other activities
+    }
+
+    // On the warm-up thread; the next initializeDatabase() starts the warm-up again
+    private void onDatabaseFailed(int token, Exception e) {
+        isDatabaseReady = false;
+        Log.e(TAG, "Error initializing database", e);
+        mainThreadHandler.post(() -> {
+            if (!readyGeneration.isCurrent(token)) {
+                return; // This screen is gone
+            }
+            if (progressBar != null) {
+                progressBar.setVisibility(View.GONE);
+            }
+            startQuizButton.setEnabled(false); // Keep button disabled or handle error
+            // Show a more persistent error, maybe a TextView or a Dialog
+            Toast.makeText(MainActivity.this, "Error initializing database: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            // You might want to provide an option to retry or exit
+        });
+    }
+
+    // Lets the player pick which content packs join the quiz; only the picked ones are ever installed
+    private void showFlagPacksDialog(List<ContentPack> packs) {
+        Set<String> selected = new HashSet<>(QuizSettings.getSelectedPacks(this));
+        String[] titles = new String[packs.size()];
+        boolean[] checked = new boolean[packs.size()];
+        for (int i = 0; i < packs.size(); i++) {
+            titles[i] = packs.get(i).getTitle();
+            checked[i] = selected.contains(packs.get(i).getName());
+        }
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.flag_packs_dialog_title)
+                .setMultiChoiceItems(titles, checked, (dialog, which, isChecked) -> {
+                    if (isChecked) {
+                        selected.add(packs.get(which).getName());
+                    } else {
+                        selected.remove(packs.get(which).getName());
+                    }
+                })
+                .setPositiveButton(android.R.string.ok, (dialog, which) -> {
+                    QuizSettings.setSelectedPacks(MainActivity.this, selected);
+                    // Install and read the picked packs now rather than when the next quiz starts
+                    AppExecutors.background().execute(PriorityExecutor.PRIORITY_PREFETCH, flagRepository::getCatalog);
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
     private void setupBackPressedCallback() {
         backPressedCallback = new OnBackPressedCallback(true /* enabled by default */) {
             @Override
@@ -141,17 +218,8 @@ public class MainActivity extends AppCompatActivity {
     protected void onDestroy() {
         super.onDestroy();
 
-        // Shutdown executor
-        if (databaseExecutor != null && !databaseExecutor.isShutdown()) {
-            databaseExecutor.shutdown();
-            Log.d(TAG, "DatabaseExecutor shutdown.");
-        }
-
-        // Close database helper
-        if (dbHelper != null) {
-            dbHelper.close(); // Ensure DatabaseCopyHelper's close() is called
-            Log.d(TAG, "DatabaseCopyHelper closed.");
-        }
+        // The background pool is shared by the whole app; just stop caring about our pending result
+        readyGeneration.advance();
 
         // Clean up handler messages
         // mainThreadHandler is final, no need to check for null, but removeCallbacksAndMessages is good practice
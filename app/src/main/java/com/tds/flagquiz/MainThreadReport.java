@@ -0,0 +1,252 @@
+package com.tds.flagquiz;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.StrictMode;
+import android.os.strictmode.Violation;
+import android.util.Log;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+import androidx.metrics.performance.FrameData;
+import androidx.metrics.performance.JankStats;
+import androidx.metrics.performance.PerformanceMetricsState;
+import androidx.metrics.performance.StateInfo;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Debug builds only: finds main-thread stalls without a profiler attached.
+ * <p>
+ * StrictMode watches the main thread for disk and network access and for calls marked slow with
+ * {@link StrictMode#noteSlowCall(String)}, which the flag DAO does on every query, and the flag
+ * repository on opening the database and attaching packs, since SQLite I/O is native and invisible
+ * to StrictMode otherwise. JankStats watches each resumed activity for
+ * frames that took too long. Both are written, one line each, to {@value #REPORT_FILE_NAME} next
+ * to the metrics dump, with the monotonic time in ms and the quiz question on screen, e.g.
+ * {@code adb pull /sdcard/Android/data/com.tds.flagquiz/files/flagquiz-mainthread.txt}.
+ * The report starts over with each process.
+ * <p>
+ * StrictMode only hands violations to the app from API 28; before that they are logged.
+ */
+public final class MainThreadReport {
+
+    private static final String TAG = "MainThreadReport";
+
+    static final String REPORT_FILE_NAME = "flagquiz-mainthread.txt";
+
+    // Keys of the JankStats states, so each frame carries the question it showed
+    private static final String STATE_QUESTION = "question";
+    private static final String STATE_FLAG_ID = "flag";
+
+    // Lines after this are dropped, so a janky session cannot fill the disk
+    private static final int MAX_LINES = 5000;
+
+    // Appends happen off the main thread, in order
+    private static final ExecutorService writeExecutor = Executors.newSingleThreadExecutor();
+
+    private static File reportFile; // Written by writeExecutor only
+    private static int lineCount;   // Written by writeExecutor only
+
+    // Quiz state for StrictMode violations, which carry no frame states; -1 outside a quiz
+    private static volatile int questionIndex = -1;
+    private static volatile int flagId = -1;
+
+    private MainThreadReport() {
+    }
+
+    /**
+     * Turns on StrictMode for the main thread and the VM, and JankStats for every activity.
+     * Call from {@link Application#onCreate()}, on the main thread. Does nothing in release builds.
+     */
+    public static void install(Application app) {
+        if (!BuildConfig.DEBUG) {
+            return;
+        }
+        Context appContext = app.getApplicationContext();
+        writeExecutor.execute(() -> startReport(appContext));
+
+        StrictMode.ThreadPolicy.Builder threadPolicy = new StrictMode.ThreadPolicy.Builder()
+                .detectDiskReads()
+                .detectDiskWrites()
+                .detectNetwork()
+                .detectCustomSlowCalls()
+                .penaltyLog();
+        StrictMode.VmPolicy.Builder vmPolicy = new StrictMode.VmPolicy.Builder()
+                .detectLeakedSqlLiteObjects()
+                .detectLeakedClosableObjects()
+                .detectLeakedRegistrationObjects()
+                .detectActivityLeaks()
+                .penaltyLog();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            threadPolicy.penaltyListener(writeExecutor, violation -> writeViolation("thread", violation));
+            vmPolicy.penaltyListener(writeExecutor, violation -> writeViolation("vm", violation));
+        }
+        StrictMode.setThreadPolicy(threadPolicy.build());
+        StrictMode.setVmPolicy(vmPolicy.build());
+
+        app.registerActivityLifecycleCallbacks(new JankTracker());
+        Log.d(TAG, "StrictMode and JankStats on.");
+    }
+
+    /**
+     * Records the question on screen, for the stalls that happen while it is shown. Main thread only.
+     *
+     * @param view Any view of the quiz screen; its frames are tagged with the question.
+     */
+    public static void setQuizState(View view, int question, int questionFlagId) {
+        if (!BuildConfig.DEBUG) {
+            return;
+        }
+        questionIndex = question;
+        flagId = questionFlagId;
+        PerformanceMetricsState state = PerformanceMetricsState.getHolderForHierarchy(view).getState();
+        if (state != null) {
+            state.putState(STATE_QUESTION, String.valueOf(question + 1));
+            state.putState(STATE_FLAG_ID, String.valueOf(questionFlagId));
+        }
+    }
+
+    /**
+     * Forgets the question set by {@link #setQuizState}, once the quiz screen is going away. Main thread only.
+     */
+    public static void clearQuizState(View view) {
+        if (!BuildConfig.DEBUG) {
+            return;
+        }
+        questionIndex = -1;
+        flagId = -1;
+        PerformanceMetricsState state = PerformanceMetricsState.getHolderForHierarchy(view).getState();
+        if (state != null) {
+            state.removeState(STATE_QUESTION);
+            state.removeState(STATE_FLAG_ID);
+        }
+    }
+
+    private static String quizState() {
+        int question = questionIndex;
+        return question >= 0 ? "question=" + (question + 1) + " flag=" + flagId : "-";
+    }
+
+    @RequiresApi(Build.VERSION_CODES.P)
+    private static void writeViolation(String policy, Violation violation) {
+        // Runs on writeExecutor, so the quiz may have moved on since; close enough for a stall that long
+        write("strictmode-" + policy + "\t" + System.nanoTime() / 1_000_000 + "\t" + quizState() + "\t"
+                + violation.getClass().getSimpleName() + "\t" + firstAppFrame(violation));
+    }
+
+    // The app's own frame nearest the violation, which is the line to fix
+    private static String firstAppFrame(Throwable violation) {
+        for (StackTraceElement frame : violation.getStackTrace()) {
+            if (frame.getClassName().startsWith("com.tds.flagquiz.") && !frame.getClassName().equals(MainThreadReport.class.getName())) {
+                return frame.toString();
+            }
+        }
+        return "?";
+    }
+
+    private static void startReport(Context appContext) {
+        File dir = appContext.getExternalFilesDir(null);
+        if (dir == null) {
+            dir = appContext.getFilesDir(); // No external storage mounted
+        }
+        reportFile = new File(dir, REPORT_FILE_NAME);
+        try (FileOutputStream ignored = new FileOutputStream(reportFile, false)) {
+            Log.d(TAG, "Main-thread report at " + reportFile);
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot start the main-thread report", e);
+            reportFile = null;
+        }
+    }
+
+    // On writeExecutor only; opening per line keeps the file complete if the process is killed
+    private static void write(String line) {
+        if (reportFile == null || lineCount >= MAX_LINES) {
+            return;
+        }
+        lineCount++;
+        try (FileOutputStream out = new FileOutputStream(reportFile, true);
+             Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            writer.write(line);
+            writer.write('\n');
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot write the main-thread report", e);
+        }
+    }
+
+    /**
+     * One JankStats per activity, tracking only while it is resumed.
+     */
+    private static final class JankTracker implements Application.ActivityLifecycleCallbacks {
+
+        private final WeakHashMap<Activity, JankStats> trackers = new WeakHashMap<>(); // Main thread only
+
+        @Override
+        public void onActivityResumed(@NonNull Activity activity) {
+            JankStats jankStats = trackers.get(activity);
+            if (jankStats == null) {
+                String screen = activity.getClass().getSimpleName();
+                jankStats = JankStats.createAndTrack(activity.getWindow(), frameData -> onFrame(screen, frameData));
+                trackers.put(activity, jankStats);
+            }
+            jankStats.setTrackingEnabled(true);
+        }
+
+        @Override
+        public void onActivityPaused(@NonNull Activity activity) {
+            JankStats jankStats = trackers.get(activity);
+            if (jankStats != null) {
+                jankStats.setTrackingEnabled(false);
+            }
+        }
+
+        @Override
+        public void onActivityDestroyed(@NonNull Activity activity) {
+            trackers.remove(activity);
+        }
+
+        // Called for every frame; FrameData is reused, so copy what is needed before handing off to the writer
+        private static void onFrame(String screen, FrameData frameData) {
+            if (!frameData.isJank()) {
+                return;
+            }
+            long startMillis = frameData.getFrameStartNanos() / 1_000_000;
+            long durationMicros = frameData.getFrameDurationUiNanos() / 1000;
+            StringBuilder states = new StringBuilder();
+            for (StateInfo state : frameData.getStates()) {
+                states.append(states.length() > 0 ? " " : "").append(state.getKey()).append('=').append(state.getValue());
+            }
+            String quizState = states.length() > 0 ? states.toString() : "-";
+            writeExecutor.execute(() -> write("jank\t" + startMillis + "\t" + quizState + "\t" + screen
+                    + "\t" + (durationMicros / 1000.0) + " ms"));
+        }
+
+        @Override
+        public void onActivityCreated(@NonNull Activity activity, Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityStarted(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+        }
+    }
+}
@@ -1,16 +1,23 @@
 package com.tds.flagquiz;
 
 import androidx.activity.OnBackPressedCallback;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
+import androidx.lifecycle.ViewModelProvider;
 
 import android.content.Intent;
 import android.graphics.Color;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.View;
+import android.view.inputmethod.EditorInfo;
+import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
@@ -19,11 +26,7 @@ import android.widget.Toast;
 import com.google.android.material.button.MaterialButton;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class QuizActivity extends AppCompatActivity implements View.OnClickListener {
 
@@ -33,33 +36,51 @@ public class QuizActivity extends AppCompatActivity implements View.OnClickListe
     public static final String EXTRA_CORRECT_ANSWERS = "com.tds.flagquiz.CORRECT_ANSWERS";
     public static final String EXTRA_WRONG_ANSWERS = "com.tds.flagquiz.WRONG_ANSWERS";
     public static final String EXTRA_SKIPPED_ANSWERS = "com.tds.flagquiz.SKIPPED_ANSWERS";
+    public static final String EXTRA_TOTAL_QUESTIONS = "com.tds.flagquiz.TOTAL_QUESTIONS";
+
+    // Saved instance state: the session as QuizEngine.saveState() ints, for a restore after process death
+    private static final String STATE_QUIZ_SESSION = "quiz_session";
 
     private TextView tvWrongAnswers, tvCorrectAnswers, tvSkippedAnswers, tvQuestionProgress;
     private ImageView ivFlagImage, btnNextQuestion;
     private MaterialButton btnOptionA, btnOptionB, btnOptionC, btnOptionD, btnSubmitQuiz;
     private ProgressBar progressBarLoading;
-
-    private FlagsDatabase flagsDbHelper; // Renamed from fdatabase for clarity
-    private FlagsDAO flagsDAO;
-    private List<FlagsModel> currentQuestionList; // Stores the 10 questions for this quiz
-    private FlagsModel currentCorrectFlag;
+    private View typedAnswerContainer;
+    private EditText etTypedAnswer;
+    private MaterialButton btnCheckTypedAnswer;
+    private TextView tvTypedAnswerFeedback;
+
+    private FlagImageLoader flagImageLoader;
+    private FlagStatsStore flagStatsStore; // Buffers answers in memory, written when the quiz ends or the screen stops
+    private QuizViewModel quizViewModel; // Keeps the session across rotation and theme changes
+    private QuizSessionPlan quizPlan; // All questions and their shuffled options for this quiz
+    private QuizEngine quizEngine; // Quiz state: current question, answer and score. This activity only renders it
     private List<MaterialButton> optionButtons; // To easily iterate over option buttons
-
-    // Quiz State
-    private int scoreCorrect = 0;
-    private int scoreWrong = 0;
-    private int scoreSkipped = 0;
-    private int currentQuestionIndex = 0;
-    private boolean answerSelectedThisTurn = false;
+    private FlagNameMatcher nameMatcher; // Typed-answer mode only; null when options are picked
+    private final Generation questionGeneration = new Generation(); // Advanced per question shown, drops stale flag loads
+    // Counts on screen, so an answer only formats the one counter it changed; -1 until first shown
+    private int shownCorrect = -1, shownWrong = -1, shownSkipped = -1;
 
     public static final int NUMBER_OF_QUESTIONS_PER_QUIZ = 10; // How many questions in one quiz session
-    private static final int NUMBER_OF_OPTIONS_PER_QUESTION = 4; // Total options including correct one
-    private static final int NUMBER_OF_WRONG_OPTIONS_TO_FETCH = NUMBER_OF_OPTIONS_PER_QUESTION - 1;
+    static final int NUMBER_OF_OPTIONS_PER_QUESTION = 4; // Total options including correct one
+    static final int NUMBER_OF_FLAGS_TO_PREFETCH = 3; // Upcoming flags decoded while the user answers
 
-
-    private ExecutorService databaseExecutor;
     private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
 
+    // Next-to-interactive: from the tap on Next until the frame showing the new question's flag is drawn.
+    // The options are set and enabled in the same pass as the tap, so by then they are interactive too.
+    // Kept as fields so a tap does not allocate callbacks.
+    private RenderLatencyStore renderLatencyStore;
+    private long nextTappedAtNanos; // 0 when no tap is waiting to be measured
+    private final Runnable recordNextToInteractive = this::recordNextToInteractive;
+    private final Choreographer.FrameCallback afterNextQuestionFrame =
+            frameTimeNanos -> mainThreadHandler.post(recordNextToInteractive); // Runs once that frame's traversal is done
+    private final Runnable onQuestionFlagShown = () -> {
+        if (nextTappedAtNanos != 0) {
+            Choreographer.getInstance().postFrameCallback(afterNextQuestionFrame);
+        }
+    };
+
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -68,9 +89,10 @@ public class QuizActivity extends AppCompatActivity implements View.OnClickListe
 
         initializeViews();
 
-        flagsDbHelper = new FlagsDatabase(this); // Initialize helper
-        flagsDAO = new FlagsDAO(); // Initialize DAO
-        databaseExecutor = Executors.newSingleThreadExecutor();
+        flagImageLoader = FlagImageLoader.getInstance(this);
+        flagStatsStore = FlagStatsStore.getInstance(this);
+        renderLatencyStore = RenderLatencyStore.getInstance(this);
+        quizViewModel = new ViewModelProvider(this).get(QuizViewModel.class);
 
         optionButtons = new ArrayList<>();
         optionButtons.add(btnOptionA);
@@ -80,7 +102,7 @@ public class QuizActivity extends AppCompatActivity implements View.OnClickListe
 
         setClickListeners();
         showLoading(true);
-        fetchQuizQuestions();
+        fetchQuizQuestions(savedInstanceState);
 
         setupBackPressedCallback();
 
@@ -102,6 +124,11 @@ public class QuizActivity extends AppCompatActivity implements View.OnClickListe
         btnOptionD = findViewById(R.id.optionD_button);
         progressBarLoading = findViewById(R.id.quiz_progress_bar); // Add this to your XML
 
+        typedAnswerContainer = findViewById(R.id.typed_answer_container);
+        etTypedAnswer = findViewById(R.id.typed_answer_input);
+        btnCheckTypedAnswer = findViewById(R.id.typed_answer_check_button);
+        tvTypedAnswerFeedback = findViewById(R.id.typed_answer_feedback);
+
         // Initial UI state
         updateScoreDisplay();
     }
@@ -112,6 +139,29 @@ public class QuizActivity extends AppCompatActivity implements View.OnClickListe
         }
         btnNextQuestion.setOnClickListener(this);
         btnSubmitQuiz.setOnClickListener(this); // Make sure submit button exists and is handled
+
+        btnCheckTypedAnswer.setOnClickListener(this);
+        etTypedAnswer.setOnEditorActionListener((v, actionId, event) -> {
+            if (actionId == EditorInfo.IME_ACTION_DONE) {
+                checkTypedAnswer();
+                return true;
+            }
+            return false;
+        });
+        etTypedAnswer.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                showTypedSuggestion(s.toString());
+            }
+        });
     }
 
     private void showLoading(boolean isLoading) {
@@ -127,138 +177,184 @@ public class QuizActivity extends AppCompatActivity implements View.OnClickListe
         ivFlagImage.setVisibility(isLoading ? View.INVISIBLE : View.VISIBLE);
     }
 
-    private void fetchQuizQuestions() {
-        databaseExecutor.execute(() -> {
-            // Get 10 random questions for the quiz session
-            currentQuestionList = flagsDAO.getRandomQuestions(flagsDbHelper, NUMBER_OF_QUESTIONS_PER_QUIZ);
-
-            mainThreadHandler.post(() -> {
-                showLoading(false);
-                if (currentQuestionList == null || currentQuestionList.isEmpty()) {
-                    Toast.makeText(QuizActivity.this, "Failed to load questions. Please try again.", Toast.LENGTH_LONG).show();
-                    // Optionally finish activity or provide a retry mechanism
-                    finish(); // Example: exit if no questions
-                    return;
-                }
-                currentQuestionIndex = 0; // Start with the first question
-                loadQuestionUI(currentQuestionIndex);
-            });
-        });
+    private void fetchQuizQuestions(Bundle savedInstanceState) {
+        // After a rotation the ViewModel already has the session and hands it straight back;
+        // after process death it is rebuilt from the saved snapshot instead of planned again
+        quizViewModel.getSession().observe(this, this::onSessionReady);
+        quizViewModel.start(savedInstanceState != null ? savedInstanceState.getIntArray(STATE_QUIZ_SESSION) : null);
+    }
+
+    private void onSessionReady(QuizEngine engine) {
+        showLoading(false);
+        if (engine == null || engine.getQuestionCount() == 0) {
+            Toast.makeText(QuizActivity.this, "Failed to load questions. Please try again.", Toast.LENGTH_LONG).show();
+            // Optionally finish activity or provide a retry mechanism
+            finish(); // Example: exit if no questions
+            return;
+        }
+        quizEngine = engine;
+        quizPlan = engine.getPlan();
+        nameMatcher = quizViewModel.getNameMatcher(); // Null unless typed-answer mode is on
+        typedAnswerContainer.setVisibility(nameMatcher != null ? View.VISIBLE : View.GONE);
+        loadQuestionUI(quizEngine.getQuestionIndex());
+        updateScoreDisplay();
+        if (quizEngine.getState() == QuizEngine.State.ANSWERED) {
+            showAnswer(quizEngine.getSelectedSlot()); // Answered before the screen was recreated
+        }
     }
 
     private void loadQuestionUI(int questionIndex) {
-        if (questionIndex >= currentQuestionList.size()) {
+        if (questionIndex >= quizPlan.size()) {
             Log.e(TAG, "Attempted to load question out of bounds.");
             finishQuiz(); // Should not happen if logic is correct
             return;
         }
 
-        answerSelectedThisTurn = false;
         resetOptionButtonStyles();
         setOptionButtonsClickable(true);
 
-        currentCorrectFlag = currentQuestionList.get(questionIndex);
-        tvQuestionProgress.setText(getString(R.string.question_progress_format, (questionIndex + 1), currentQuestionList.size()));
-
+        tvQuestionProgress.setText(getString(R.string.question_progress_format, (questionIndex + 1), quizPlan.size()));
 
-        // Load flag image - ensure 'getIdentifier' is what you need
-        // If flag_image stores a direct reference or you use an image loading library, that's better.
-        try {
-            int imageResId = getResources().getIdentifier(currentCorrectFlag.getFlag_image(), "drawable", getPackageName());
-            if (imageResId != 0) {
-                ivFlagImage.setImageResource(imageResId);
-            } else {
-                Log.w(TAG, "Flag image not found: " + currentCorrectFlag.getFlag_image());
-                ivFlagImage.setImageResource(R.drawable.ic_placeholder_flag); // Have a placeholder
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error loading flag image", e);
-            ivFlagImage.setImageResource(R.drawable.ic_placeholder_flag);
-        }
 
+        MainThreadReport.setQuizState(ivFlagImage, questionIndex, quizPlan.getQuestionFlagId(questionIndex)); // Debug builds only
 
-        // Fetch wrong options on a background thread
-        showLoading(true); // Show loading while options are fetched
-        databaseExecutor.execute(() -> {
-            List<FlagsModel> wrongOptions = flagsDAO.getRandomOptions(flagsDbHelper, currentCorrectFlag.getFlag_id(), NUMBER_OF_WRONG_OPTIONS_TO_FETCH);
+        // Flag bitmaps are decoded off the main thread; decode the next few while this one is answered
+        int token = questionGeneration.advance();
+        flagImageLoader.load(quizPlan.getQuestionFlagId(questionIndex), ivFlagImage, R.drawable.ic_placeholder_flag,
+                questionGeneration, token, onQuestionFlagShown);
+        for (int i = questionIndex + 1; i <= questionIndex + NUMBER_OF_FLAGS_TO_PREFETCH && i < quizPlan.size(); i++) {
+            flagImageLoader.prefetch(quizPlan.getQuestionFlagId(i), ivFlagImage);
+        }
 
-            mainThreadHandler.post(() -> {
-                showLoading(false); // Hide loading
 
-                List<FlagsModel> allOptionsForThisQuestion = new ArrayList<>();
-                allOptionsForThisQuestion.add(currentCorrectFlag);
-                if (wrongOptions != null) {
-                    allOptionsForThisQuestion.addAll(wrongOptions);
-                }
+        if (nameMatcher != null) {
+            // Typed-answer mode: the options stay hidden, the answer is matched against every name
+            for (MaterialButton button : optionButtons) {
+                button.setVisibility(View.GONE);
+            }
+            etTypedAnswer.setText("");
+            etTypedAnswer.setEnabled(true);
+            btnCheckTypedAnswer.setEnabled(true);
+            tvTypedAnswerFeedback.setVisibility(View.GONE);
+            return;
+        }
 
-                // Ensure we have enough options, if not, this indicates a data problem
-                while (allOptionsForThisQuestion.size() < NUMBER_OF_OPTIONS_PER_QUESTION) {
-                    // This is a fallback, ideally your DB should have enough distinct flags
-                    Log.w(TAG, "Not enough distinct wrong options, adding duplicates or placeholders might be needed if this happens often.");
-                    // For now, let's just use what we have, but it might lead to fewer than 4 options.
-                    // Or, you could fetch more random flags that aren't the correct one and aren't already in wrongOptions.
-                    // For simplicity here, we'll proceed, but in production, handle this robustly.
-                    // Example: add a placeholder if allOptionsForThisQuestion.size() < 4
-                    allOptionsForThisQuestion.add(new FlagsModel(-1 * allOptionsForThisQuestion.size(), "N/A", ""));
-                }
+        // Options were picked and shuffled when the plan was built, so this is just a render
+        for (int i = 0; i < optionButtons.size(); i++) {
+            if (quizPlan.hasOption(questionIndex, i)) {
+                optionButtons.get(i).setText(quizPlan.getOptionName(questionIndex, i));
+                optionButtons.get(i).setVisibility(View.VISIBLE);
+            } else {
+                // Hide buttons if not enough options (should not happen with proper DB)
+                optionButtons.get(i).setVisibility(View.GONE);
+            }
+        }
+    }
 
+    private void processAnswer(MaterialButton selectedButton) {
+        if (quizEngine == null) {
+            return; // No current question
+        }
+        // The engine checks the answer by flag id; a repeat tap on an answered question is ignored
+        int result = quizEngine.answer(optionButtons.indexOf(selectedButton));
+        if (result == QuizEngine.RESULT_IGNORED) {
+            return;
+        }
+        flagStatsStore.recordAnswer(quizEngine.getQuestionFlagId(), result == QuizEngine.RESULT_CORRECT); // Memory only
+        showAnswer(quizEngine.getSelectedSlot());
+        updateScoreDisplay();
+    }
 
-                Collections.shuffle(allOptionsForThisQuestion);
+    private void checkTypedAnswer() {
+        if (quizEngine == null || nameMatcher == null) {
+            return; // No current question, or options mode
+        }
+        // The closest name within a few typos, from the in-memory BK-tree; no query per answer
+        int flagId = nameMatcher.match(etTypedAnswer.getText().toString(), quizEngine.getQuestionFlagId());
+        int result = quizEngine.answerFlag(flagId);
+        if (result == QuizEngine.RESULT_IGNORED) {
+            return;
+        }
+        flagStatsStore.recordAnswer(quizEngine.getQuestionFlagId(), result == QuizEngine.RESULT_CORRECT); // Memory only
+        showAnswer(quizEngine.getSelectedSlot());
+        updateScoreDisplay();
+    }
 
-                for (int i = 0; i < optionButtons.size(); i++) {
-                    if (i < allOptionsForThisQuestion.size()) {
-                        optionButtons.get(i).setText(allOptionsForThisQuestion.get(i).getFlag_name());
-                        optionButtons.get(i).setVisibility(View.VISIBLE);
-                    } else {
-                        // Hide buttons if not enough options (should not happen with proper DB)
-                        optionButtons.get(i).setVisibility(View.GONE);
-                    }
-                }
-            });
-        });
+    // Runs on every keystroke: one BK-tree lookup, a few dozen short distance computations
+    private void showTypedSuggestion(String typed) {
+        if (quizEngine == null || nameMatcher == null || quizEngine.getState() != QuizEngine.State.ASKING) {
+            return;
+        }
+        int flagId = nameMatcher.match(typed, quizEngine.getQuestionFlagId());
+        if (flagId == FlagNameMatcher.NO_MATCH) {
+            tvTypedAnswerFeedback.setVisibility(View.GONE);
+            return;
+        }
+        FlagCatalog catalog = quizPlan.getCatalog();
+        tvTypedAnswerFeedback.setText(getString(R.string.typed_answer_suggestion_format,
+                catalog.getName(catalog.indexOf(flagId))));
+        tvTypedAnswerFeedback.setTextColor(ContextCompat.getColor(this, R.color.purple_700));
+        tvTypedAnswerFeedback.setVisibility(View.VISIBLE);
     }
 
-    private void processAnswer(MaterialButton selectedButton) {
-        if (answerSelectedThisTurn || currentCorrectFlag == null) {
-            return; // Already answered or no current question
+    private void showAnswer(int selectedSlot) {
+        if (nameMatcher != null) {
+            showTypedAnswer();
+            return;
         }
-        answerSelectedThisTurn = true;
         setOptionButtonsClickable(false);
+        if (selectedSlot == QuizSessionPlan.NO_OPTION) {
+            selectedSlot = quizEngine.getCorrectSlot(); // Answered by name with a flag not on offer
+        }
 
-        String selectedAnswerText = selectedButton.getText().toString();
-        String correctAnswerText = currentCorrectFlag.getFlag_name();
-
-        if (selectedAnswerText.equals(correctAnswerText)) {
-            scoreCorrect++;
+        MaterialButton selectedButton = optionButtons.get(selectedSlot);
+        if (selectedSlot == quizEngine.getCorrectSlot()) {
             selectedButton.setBackgroundColor(ContextCompat.getColor(this, R.color.correct_answer_green)); // Use ContextCompat
             selectedButton.setTextColor(Color.WHITE);
         } else {
-            scoreWrong++;
             selectedButton.setBackgroundColor(ContextCompat.getColor(this, R.color.wrong_answer_red));
             selectedButton.setTextColor(Color.WHITE);
 
             // Highlight the correct answer
-            for (MaterialButton button : optionButtons) {
-                if (button.getText().toString().equals(correctAnswerText)) {
-                    button.setBackgroundColor(ContextCompat.getColor(this, R.color.correct_answer_green));
-                    button.setTextColor(Color.WHITE);
-                    break; // Found and highlighted correct one
-                }
-            }
+            MaterialButton correctButton = optionButtons.get(quizEngine.getCorrectSlot());
+            correctButton.setBackgroundColor(ContextCompat.getColor(this, R.color.correct_answer_green));
+            correctButton.setTextColor(Color.WHITE);
         }
-        updateScoreDisplay();
     }
 
-    private void handleNextQuestion() {
-        if (!answerSelectedThisTurn) { // If user skipped by pressing next
-            scoreSkipped++;
-            // No need to update score display here immediately, it will be updated with the next question load or at end.
+    private void showTypedAnswer() {
+        etTypedAnswer.setEnabled(false);
+        btnCheckTypedAnswer.setEnabled(false);
+        // The question's flag is always an option, so a right answer selects its slot
+        if (quizEngine.getSelectedSlot() == quizEngine.getCorrectSlot()) {
+            tvTypedAnswerFeedback.setText(R.string.typed_answer_correct);
+            tvTypedAnswerFeedback.setTextColor(ContextCompat.getColor(this, R.color.correct_answer_green));
+        } else {
+            tvTypedAnswerFeedback.setText(getString(R.string.typed_answer_wrong_format,
+                    quizPlan.getQuestionName(quizEngine.getQuestionIndex())));
+            tvTypedAnswerFeedback.setTextColor(ContextCompat.getColor(this, R.color.wrong_answer_red));
         }
+        tvTypedAnswerFeedback.setVisibility(View.VISIBLE);
+    }
 
-        currentQuestionIndex++;
-        if (currentQuestionIndex < currentQuestionList.size()) {
-            loadQuestionUI(currentQuestionIndex);
-            updateScoreDisplay(); // Update skipped count display if it changed
+    private void handleNextQuestion() {
+        if (quizEngine == null) {
+            return; // Questions still loading
+        }
+        if (quizEngine.getState() == QuizEngine.State.ASKING) {
+            flagStatsStore.recordSkip(quizEngine.getQuestionFlagId());
+        }
+        // Counts the question as skipped if it was not answered
+        if (quizEngine.next()) {
+            // Measured once the flag is drawn: at the next frame on a cache hit, later if it is still decoding
+            nextTappedAtNanos = System.nanoTime();
+            long start = Tracing.begin("QuizActivity.nextQuestion");
+            try {
+                loadQuestionUI(quizEngine.getQuestionIndex());
+                updateScoreDisplay(); // Update skipped count display if it changed
+            } finally {
+                Tracing.end(Tracing.NEXT_QUESTION_UI, start);
+            }
         } else {
             finishQuiz();
         }
@@ -266,19 +362,40 @@ public class QuizActivity extends AppCompatActivity implements View.OnClickListe
 
 
     private void finishQuiz() {
+        if (quizEngine == null) {
+            return; // Nothing to submit while questions are loading
+        }
+        quizEngine.finish();
+        flagStatsStore.recordQuiz(quizEngine.getQuestionsPlayed(), quizEngine.getCorrectCount(),
+                quizEngine.getWrongCount(), quizEngine.getSkippedCount());
+        flagStatsStore.flushAsync(); // One transaction for the whole quiz, off the main thread
         Intent intent = new Intent(QuizActivity.this, ResultActivity.class);
-        intent.putExtra(EXTRA_CORRECT_ANSWERS, scoreCorrect);
-        intent.putExtra(EXTRA_WRONG_ANSWERS, scoreWrong);
-        intent.putExtra(EXTRA_SKIPPED_ANSWERS, scoreSkipped);
+        intent.putExtra(EXTRA_CORRECT_ANSWERS, quizEngine.getCorrectCount());
+        intent.putExtra(EXTRA_WRONG_ANSWERS, quizEngine.getWrongCount());
+        intent.putExtra(EXTRA_SKIPPED_ANSWERS, quizEngine.getSkippedCount());
+        intent.putExtra(EXTRA_TOTAL_QUESTIONS, quizEngine.getQuestionsPlayed());
+        Tracing.dumpAsync(this); // Debug builds only
         startActivity(intent);
         finish(); // Finish QuizActivity
     }
 
 
     private void updateScoreDisplay() {
-        tvCorrectAnswers.setText(getString(R.string.correct_score_format, scoreCorrect));
-        tvWrongAnswers.setText(getString(R.string.wrong_score_format, scoreWrong));
-        tvSkippedAnswers.setText(getString(R.string.skipped_score_format, scoreSkipped));
+        int correct = quizEngine != null ? quizEngine.getCorrectCount() : 0;
+        int wrong = quizEngine != null ? quizEngine.getWrongCount() : 0;
+        int skipped = quizEngine != null ? quizEngine.getSkippedCount() : 0;
+        if (correct != shownCorrect) {
+            tvCorrectAnswers.setText(getString(R.string.correct_score_format, correct));
+            shownCorrect = correct;
+        }
+        if (wrong != shownWrong) {
+            tvWrongAnswers.setText(getString(R.string.wrong_score_format, wrong));
+            shownWrong = wrong;
+        }
+        if (skipped != shownSkipped) {
+            tvSkippedAnswers.setText(getString(R.string.skipped_score_format, skipped));
+            shownSkipped = skipped;
+        }
     }
 
     private void resetOptionButtonStyles() {
@@ -303,20 +420,44 @@ public class QuizActivity extends AppCompatActivity implements View.OnClickListe
             handleNextQuestion();
         } else if (id == R.id.submit_button) {
             finishQuiz(); // Allow submitting early
+        } else if (id == R.id.typed_answer_check_button) {
+            checkTypedAnswer();
         } else if (v instanceof MaterialButton) { // One of the option buttons
             processAnswer((MaterialButton) v);
         }
     }
 
     @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        if (databaseExecutor != null && !databaseExecutor.isShutdown()) {
-            databaseExecutor.shutdownNow(); // Attempt to stop ongoing tasks
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        if (quizEngine != null && !quizEngine.isFinished()) {
+            // A few dozen ints: enough to rebuild the session without the database
+            outState.putIntArray(STATE_QUIZ_SESSION, quizEngine.saveState());
         }
-        if (flagsDbHelper != null) {
-            flagsDbHelper.close(); // Close the database helper
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        flagStatsStore.flushAsync(); // Don't lose answers if the process dies in the background
+        renderLatencyStore.saveAsync();
+    }
+
+    private void recordNextToInteractive() {
+        if (nextTappedAtNanos == 0) {
+            return;
         }
+        Tracing.record(Tracing.NEXT_TO_INTERACTIVE, nextTappedAtNanos);
+        renderLatencyStore.recordNanos(System.nanoTime() - nextTappedAtNanos); // Kept across sessions
+        nextTappedAtNanos = 0;
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // The session and its loader belong to QuizViewModel, which outlives a configuration change
+        questionGeneration.advance(); // Nothing still decoding may touch these views
+        MainThreadReport.clearQuizState(ivFlagImage);
         mainThreadHandler.removeCallbacksAndMessages(null); // Clean up handler
         Log.d(TAG, "QuizActivity onDestroy");
     }
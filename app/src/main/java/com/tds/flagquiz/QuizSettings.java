@@ -0,0 +1,61 @@
+package com.tds.flagquiz;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Player choices that shape the quiz, kept in SharedPreferences.
+ */
+public final class QuizSettings {
+
+    private static final String PREFS_NAME = "quiz_settings";
+    private static final String KEY_SIMILAR_DISTRACTORS = "similar_distractors";
+    private static final String KEY_TYPED_ANSWERS = "typed_answers";
+    private static final String KEY_SELECTED_PACKS = "selected_packs";
+
+    private QuizSettings() {
+    }
+
+    /**
+     * @return true if wrong answers should be flags that look like the right one.
+     */
+    public static boolean isSimilarDistractors(Context context) {
+        return prefs(context).getBoolean(KEY_SIMILAR_DISTRACTORS, false);
+    }
+
+    public static void setSimilarDistractors(Context context, boolean similar) {
+        prefs(context).edit().putBoolean(KEY_SIMILAR_DISTRACTORS, similar).apply();
+    }
+
+    /**
+     * @return true if the player types the country name instead of picking one of the options.
+     */
+    public static boolean isTypedAnswers(Context context) {
+        return prefs(context).getBoolean(KEY_TYPED_ANSWERS, false);
+    }
+
+    public static void setTypedAnswers(Context context, boolean typed) {
+        prefs(context).edit().putBoolean(KEY_TYPED_ANSWERS, typed).apply();
+    }
+
+    /**
+     * @return Names of the content packs whose flags join the quiz; none by default.
+     */
+    public static Set<String> getSelectedPacks(Context context) {
+        // The returned set belongs to SharedPreferences and must not be modified
+        Set<String> names = prefs(context).getStringSet(KEY_SELECTED_PACKS, null);
+        return names != null ? Collections.unmodifiableSet(names) : Collections.<String>emptySet();
+    }
+
+    public static void setSelectedPacks(Context context, Set<String> names) {
+        prefs(context).edit().putStringSet(KEY_SELECTED_PACKS, new HashSet<>(names)).apply();
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,130 @@
+package com.tds.flagquiz;
+
+import android.app.Application;
+import android.content.res.Resources;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+/**
+ * Holds the running quiz for QuizActivity, so a rotation or theme change reuses the session
+ * instead of planning a new one. The decoded flags live in FlagImageLoader's process-wide cache,
+ * which outlives the activity as well.
+ * <p>
+ * After process death the activity passes back the snapshot it saved with
+ * {@link QuizEngine#saveState()}, and the session is rebuilt from the flag catalog alone.
+ */
+public class QuizViewModel extends AndroidViewModel {
+
+    private static final String TAG = "QuizViewModel";
+
+    private final FlagRepository flagRepository;
+    private final FlagImageLoader flagImageLoader;
+    private final Generation loadGeneration = new Generation(); // Advanced in onCleared to drop a queued load
+
+    // Posted once loading is done; null if no questions could be loaded
+    private final MutableLiveData<QuizEngine> session = new MutableLiveData<>();
+    private volatile FlagNameMatcher nameMatcher; // Set before the session is posted, in typed-answer mode
+    private boolean started; // Main thread only
+
+    public QuizViewModel(@NonNull Application application) {
+        super(application);
+        flagRepository = FlagRepository.getInstance(application);
+        flagImageLoader = FlagImageLoader.getInstance(application);
+    }
+
+    public LiveData<QuizEngine> getSession() {
+        return session;
+    }
+
+    /**
+     * @return The matcher for typed answers once the session is posted, or null if the quiz is
+     * played by picking options.
+     */
+    public FlagNameMatcher getNameMatcher() {
+        return nameMatcher;
+    }
+
+    /**
+     * Loads the session the first time it is called for this ViewModel; later calls, such as
+     * from an activity recreated after a rotation, do nothing.
+     *
+     * @param savedSnapshot The saved session to restore, or null to plan a new quiz.
+     */
+    public void start(int[] savedSnapshot) {
+        if (started) {
+            return;
+        }
+        started = true;
+        int token = loadGeneration.advance();
+        AppExecutors.background().execute(PriorityExecutor.PRIORITY_INTERACTIVE, loadGeneration, token, () -> {
+            QuizEngine engine = savedSnapshot != null ? restoreSession(savedSnapshot) : null;
+            if (engine == null) {
+                engine = newSession();
+            }
+            if (engine != null && QuizSettings.isTypedAnswers(getApplication())) {
+                // Built once from the catalog, so checking a typed answer never queries
+                nameMatcher = flagRepository.getNameMatcher();
+            }
+            session.postValue(engine);
+        });
+    }
+
+    private QuizEngine restoreSession(int[] savedSnapshot) {
+        // After process death this builds the catalog again: the flags and their localized names come from
+        // the memory-mapped binary asset, but selected content packs are installed and read from SQLite
+        FlagCatalog catalog = flagRepository.getCatalog();
+        QuizEngine engine = catalog != null ? QuizEngine.restore(catalog, savedSnapshot) : null;
+        if (engine == null || engine.isFinished()) {
+            Log.w(TAG, "Saved quiz could not be restored, starting a new one.");
+            return null;
+        }
+        prefetchFlags(engine.getPlan(), engine.getQuestionIndex());
+        Log.d(TAG, "Restored quiz at question " + (engine.getQuestionIndex() + 1));
+        return engine;
+    }
+
+    private QuizEngine newSession() {
+        // The first quiz was planned during app warm-up, with its first flags already decoding
+        boolean similar = QuizSettings.isSimilarDistractors(getApplication());
+        QuizSessionPlan plan = ((FlagQuizApp) getApplication()).takeFirstPlan(similar);
+        if (plan != null && plan.getCatalog() != flagRepository.getCatalog()) {
+            plan = null; // Content packs or the language changed since warm-up
+        }
+        if (plan == null) {
+            // Plan the whole session in one pass: 10 questions, each with its options already shuffled
+            FlagCatalog catalog = flagRepository.getCatalog();
+            if (catalog == null) {
+                return null;
+            }
+            DistractorStrategy distractorStrategy = flagRepository.getDistractorStrategy(similar);
+            long planStart = Tracing.begin("QuizSessionPlan.build");
+            plan = QuizSessionPlan.build(catalog, QuizActivity.NUMBER_OF_QUESTIONS_PER_QUIZ,
+                    QuizActivity.NUMBER_OF_OPTIONS_PER_QUESTION, distractorStrategy);
+            Tracing.end(Tracing.SESSION_PLAN, planStart);
+            // Start decoding the first flags now so the first question shows without waiting
+            prefetchFlags(plan, 0);
+        }
+        return plan.size() > 0 ? new QuizEngine(plan) : null;
+    }
+
+    private void prefetchFlags(QuizSessionPlan plan, int fromQuestion) {
+        // Decode at the size the quiz screen shows flags at, so these are cache hits there
+        Resources resources = getApplication().getResources();
+        int width = resources.getDimensionPixelSize(R.dimen.flag_image_width);
+        int height = resources.getDimensionPixelSize(R.dimen.flag_image_height);
+        for (int i = fromQuestion; i <= fromQuestion + QuizActivity.NUMBER_OF_FLAGS_TO_PREFETCH && i < plan.size(); i++) {
+            flagImageLoader.prefetch(plan.getQuestionFlagId(i), width, height);
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        loadGeneration.advance(); // The quiz screen is gone for good; the shared pool stays up
+        Log.d(TAG, "QuizViewModel cleared");
+    }
+}
@@ -0,0 +1,133 @@
+package com.tds.flagquiz;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Next-to-interactive latency across sessions: the time from a tap on Next until the next
+ * question's flag and options are on screen, kept in a {@link LatencyHistogram} so low-end
+ * devices can be checked for jank regressions over many quizzes.
+ * <p>
+ * Samples are recorded on the main thread into memory; the histogram is saved to
+ * {@value #FILE_NAME} when the quiz screen stops. The saved counts are loaded in the background
+ * when the store is first used and merged with anything recorded meanwhile.
+ */
+public final class RenderLatencyStore {
+
+    private static final String TAG = "RenderLatencyStore";
+
+    static final String FILE_NAME = "next_to_interactive.hist";
+
+    private static volatile RenderLatencyStore instance;
+
+    private final File file;
+    private final LatencyHistogram histogram = new LatencyHistogram(); // Guarded by this
+    private boolean loaded; // Guarded by this; saving before the old counts are in would drop them
+    private int saveSequence; // Guarded by this
+    private int writtenSequence; // Guarded by file; a save that lost the race to a newer one is skipped
+
+    public static RenderLatencyStore getInstance(Context context) {
+        RenderLatencyStore store = instance;
+        if (store == null) {
+            synchronized (RenderLatencyStore.class) {
+                store = instance;
+                if (store == null) {
+                    store = new RenderLatencyStore(context.getApplicationContext());
+                    instance = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    private RenderLatencyStore(Context appContext) {
+        file = new File(appContext.getFilesDir(), FILE_NAME);
+        AppExecutors.background().execute(PriorityExecutor.PRIORITY_PREFETCH, this::load);
+    }
+
+    public synchronized void recordNanos(long nanos) {
+        histogram.recordNanos(nanos);
+    }
+
+    /**
+     * Returns a copy of every sample so far, saved ones included once they are loaded.
+     */
+    public synchronized LatencyHistogram snapshot() {
+        LatencyHistogram copy = new LatencyHistogram();
+        copy.merge(histogram);
+        return copy;
+    }
+
+    /** Forgets every sample, saved ones included. */
+    public void resetAsync() {
+        synchronized (this) {
+            histogram.reset();
+        }
+        saveAsync();
+    }
+
+    public void saveAsync() {
+        AppExecutors.background().execute(PriorityExecutor.PRIORITY_NORMAL, this::save);
+    }
+
+    private void load() {
+        LatencyHistogram saved = null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            saved = LatencyHistogram.readFrom(in);
+        } catch (FileNotFoundException e) {
+            // First run, nothing saved yet
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable latency histogram", e);
+        }
+        synchronized (this) {
+            if (saved != null) {
+                histogram.merge(saved);
+            }
+            loaded = true;
+        }
+    }
+
+    private void save() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int sequence;
+        synchronized (this) {
+            if (!loaded) {
+                return; // The load that is still queued would otherwise be overwritten
+            }
+            try {
+                histogram.writeTo(new DataOutputStream(bytes));
+            } catch (IOException e) {
+                throw new AssertionError(e); // ByteArrayOutputStream does not throw
+            }
+            sequence = ++saveSequence;
+        }
+        // The file is written outside the lock above, so the main thread never waits on disk
+        synchronized (file) {
+            if (sequence < writtenSequence) {
+                return;
+            }
+            writtenSequence = sequence;
+            File temp = new File(file.getPath() + ".tmp");
+            try {
+                try (FileOutputStream out = new FileOutputStream(temp)) {
+                    bytes.writeTo(out);
+                }
+                if (!temp.renameTo(file)) {
+                    throw new IOException("Cannot move " + temp + " to " + file);
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Could not save latency histogram", e);
+            }
+        }
+    }
+}
@@ -24,17 +24,15 @@ import java.util.Locale;
 
 public class ResultActivity extends AppCompatActivity {
     private TextView tvTotalCorrect, tvTotalWrong, tvTotalSkipped, tvSuccessRate, tvResultTitle;
+    private TextView tvLifetimeAccuracy, tvRecentAccuracy;
     private MaterialButton btnPlayAgain, btnExit;
     private ImageView ivResultIcon;
     private MaterialCardView cardViewResults, cardViewSuccessRate;
     private LinearLayout llButtonsContainer;
 
 
-    // Assume these constants are correctly defined in QuizActivity
-    // and passed via intent, or use a shared constants file.
-    // For success rate calculation, we need total questions in the quiz.
-    // Let's assume QuizActivity.NUMBER_OF_QUESTIONS_PER_QUIZ is the correct constant.
-    private int totalQuestionsInQuiz = QuizActivity.NUMBER_OF_QUESTIONS_PER_QUIZ; // Or pass this via intent
+    // Questions actually played, passed by QuizActivity, so an early submit is rated on what was reached
+    private int totalQuestionsInQuiz;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -52,11 +50,11 @@ public class ResultActivity extends AppCompatActivity {
         int correctAnswers = getIntent().getIntExtra(QuizActivity.EXTRA_CORRECT_ANSWERS, 0);
         int wrongAnswers = getIntent().getIntExtra(QuizActivity.EXTRA_WRONG_ANSWERS, 0);
         int skippedAnswers = getIntent().getIntExtra(QuizActivity.EXTRA_SKIPPED_ANSWERS, 0);
-
-        // If total questions not passed, calculate from results (less ideal if some questions weren't answered at all)
-        // totalQuestionsInQuiz = correctAnswers + wrongAnswers + skippedAnswers; // This might not be accurate if quiz can end early
+        totalQuestionsInQuiz = getIntent().getIntExtra(QuizActivity.EXTRA_TOTAL_QUESTIONS,
+                correctAnswers + wrongAnswers + skippedAnswers);
 
         displayResults(correctAnswers, wrongAnswers, skippedAnswers);
+        loadHistory();
         setupClickListeners();
         setupBackPressedCallback();
         startEntryAnimations();
@@ -78,6 +76,8 @@ public class ResultActivity extends AppCompatActivity {
         tvTotalWrong = findViewById(R.id.total_wrong_answer);
         tvTotalSkipped = findViewById(R.id.total_skip_question);
         tvSuccessRate = findViewById(R.id.success_rate);
+        tvLifetimeAccuracy = findViewById(R.id.lifetime_accuracy);
+        tvRecentAccuracy = findViewById(R.id.recent_accuracy);
 
         btnPlayAgain = findViewById(R.id.play_again_button);
         btnExit = findViewById(R.id.quit_button);
@@ -99,6 +99,20 @@ public class ResultActivity extends AppCompatActivity {
         tvSuccessRate.setText(successRateFormatted);
     }
 
+    // Lifetime and last-10 accuracy from the quiz history. This quiz was queued for writing
+    // before this screen started, and the read runs after it on the same thread.
+    private void loadHistory() {
+        FlagStatsStore.getInstance(this).loadSummariesAsync((lifetime, recent) -> {
+            if (isFinishing() || isDestroyed()) {
+                return;
+            }
+            tvLifetimeAccuracy.setText(getString(R.string.lifetime_accuracy_format,
+                    lifetime.getAccuracyPercent(), lifetime.quizzes));
+            tvRecentAccuracy.setText(getString(R.string.recent_accuracy_format,
+                    recent.quizzes, recent.getAccuracyPercent()));
+        });
+    }
+
     private void animateTextValue(final TextView textView, int finalValue, final String prefix) {
         ValueAnimator animator = ValueAnimator.ofInt(0, finalValue);
         animator.setDuration(1000); // Duration in milliseconds
@@ -0,0 +1,118 @@
+package com.tds.flagquiz;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+/**
+ * The writable database of what the player has learned, kept apart from the read-only
+ * flagquizdb.db that is replaced from assets on app updates.
+ * Runs in WAL mode so the flushes at the end of a quiz do not block readers.
+ * <p>
+ * Version history:
+ * 1 - flag_stats: per-flag attempts, correct, skipped and last seen.
+ * 2 - quiz_history: one row per finished quiz, and quiz_summary: running totals for all quizzes
+ *     ("lifetime") and the last {@link #RECENT_WINDOW} ("recent"), kept up to date by a trigger
+ *     on insert so the result screen reads two rows instead of scanning the history.
+ */
+public class StatsDatabaseHelper extends SQLiteOpenHelper {
+
+    private static final String TAG = "StatsDatabaseHelper";
+    private static final String DB_NAME = "flagstats.db";
+    private static final int DB_VERSION = 2;
+
+    public static final String TABLE_FLAG_STATS = "flag_stats";
+    public static final String COLUMN_FLAG_ID = "flag_id";
+    public static final String COLUMN_ATTEMPTS = "attempts";         // Questions answered, right or wrong
+    public static final String COLUMN_CORRECT = "correct";
+    public static final String COLUMN_SKIPPED = "skipped";
+    public static final String COLUMN_LAST_SEEN = "last_seen_millis"; // System.currentTimeMillis() of the last outcome
+
+    public static final String TABLE_QUIZ_HISTORY = "quiz_history";
+    public static final String COLUMN_QUIZ_ID = "_id";
+    public static final String COLUMN_FINISHED_AT = "finished_at_millis";
+    public static final String COLUMN_QUESTIONS = "questions"; // Questions reached, so an early submit counts only those
+    public static final String COLUMN_WRONG = "wrong";
+
+    public static final String TABLE_QUIZ_SUMMARY = "quiz_summary";
+    public static final String COLUMN_SCOPE = "scope";
+    public static final String COLUMN_QUIZZES = "quizzes";
+    public static final String SCOPE_LIFETIME = "lifetime";
+    public static final String SCOPE_RECENT = "recent";
+
+    /** Number of latest quizzes the "recent" summary covers. */
+    public static final int RECENT_WINDOW = 10;
+
+    public StatsDatabaseHelper(Context context) {
+        super(context.getApplicationContext(), DB_NAME, null, DB_VERSION);
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        db.enableWriteAheadLogging();
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        Log.i(TAG, "Creating " + DB_NAME);
+        db.execSQL("CREATE TABLE " + TABLE_FLAG_STATS + " (" +
+                COLUMN_FLAG_ID + " INTEGER PRIMARY KEY, " +
+                COLUMN_ATTEMPTS + " INTEGER NOT NULL DEFAULT 0, " +
+                COLUMN_CORRECT + " INTEGER NOT NULL DEFAULT 0, " +
+                COLUMN_SKIPPED + " INTEGER NOT NULL DEFAULT 0, " +
+                COLUMN_LAST_SEEN + " INTEGER NOT NULL DEFAULT 0)");
+        createQuizHistory(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        Log.i(TAG, "Upgrading " + DB_NAME + " from version " + oldVersion + " to " + newVersion);
+        if (oldVersion < 2) {
+            createQuizHistory(db);
+        }
+    }
+
+    private static void createQuizHistory(SQLiteDatabase db) {
+        String totals = COLUMN_QUESTIONS + " INTEGER NOT NULL, " +
+                COLUMN_CORRECT + " INTEGER NOT NULL, " +
+                COLUMN_WRONG + " INTEGER NOT NULL, " +
+                COLUMN_SKIPPED + " INTEGER NOT NULL";
+        db.execSQL("CREATE TABLE " + TABLE_QUIZ_HISTORY + " (" +
+                COLUMN_QUIZ_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                COLUMN_FINISHED_AT + " INTEGER NOT NULL, " + totals + ")");
+        db.execSQL("CREATE TABLE " + TABLE_QUIZ_SUMMARY + " (" +
+                COLUMN_SCOPE + " TEXT PRIMARY KEY, " +
+                COLUMN_QUIZZES + " INTEGER NOT NULL, " + totals + ")");
+        db.execSQL("INSERT INTO " + TABLE_QUIZ_SUMMARY + " VALUES ('" + SCOPE_LIFETIME + "', 0, 0, 0, 0, 0)");
+        db.execSQL("INSERT INTO " + TABLE_QUIZ_SUMMARY + " VALUES ('" + SCOPE_RECENT + "', 0, 0, 0, 0, 0)");
+
+        // Add the new quiz to both summaries, then take the quiz that just left the recent window
+        // back out of it. Finding that quiz is a rowid seek plus a fixed-size step, whatever the
+        // length of the history.
+        String leavingQuiz = "(SELECT " + COLUMN_QUIZ_ID + " FROM " + TABLE_QUIZ_HISTORY +
+                " WHERE " + COLUMN_QUIZ_ID + " < NEW." + COLUMN_QUIZ_ID +
+                " ORDER BY " + COLUMN_QUIZ_ID + " DESC LIMIT 1 OFFSET " + (RECENT_WINDOW - 1) + ")";
+        StringBuilder trigger = new StringBuilder();
+        trigger.append("CREATE TRIGGER ").append(TABLE_QUIZ_HISTORY).append("_summary AFTER INSERT ON ")
+                .append(TABLE_QUIZ_HISTORY).append(" BEGIN ");
+        trigger.append("UPDATE ").append(TABLE_QUIZ_SUMMARY).append(" SET ")
+                .append(COLUMN_QUIZZES).append(" = ").append(COLUMN_QUIZZES).append(" + 1");
+        for (String column : new String[]{COLUMN_QUESTIONS, COLUMN_CORRECT, COLUMN_WRONG, COLUMN_SKIPPED}) {
+            trigger.append(", ").append(column).append(" = ").append(column).append(" + NEW.").append(column);
+        }
+        trigger.append("; ");
+        trigger.append("UPDATE ").append(TABLE_QUIZ_SUMMARY).append(" SET ")
+                .append(COLUMN_QUIZZES).append(" = ").append(COLUMN_QUIZZES).append(" - 1");
+        for (String column : new String[]{COLUMN_QUESTIONS, COLUMN_CORRECT, COLUMN_WRONG, COLUMN_SKIPPED}) {
+            trigger.append(", ").append(column).append(" = ").append(column)
+                    .append(" - (SELECT ").append(column).append(" FROM ").append(TABLE_QUIZ_HISTORY)
+                    .append(" WHERE ").append(COLUMN_QUIZ_ID).append(" = ").append(leavingQuiz).append(")");
+        }
+        trigger.append(" WHERE ").append(COLUMN_SCOPE).append(" = '").append(SCOPE_RECENT).append("'")
+                .append(" AND ").append(leavingQuiz).append(" IS NOT NULL; ");
+        trigger.append("END");
+        db.execSQL(trigger.toString());
+    }
+}
@@ -0,0 +1,130 @@
+package com.tds.flagquiz;
+
+import android.content.Context;
+import android.os.Trace;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Instrumentation for startup and the quiz loop.
+ * <p>
+ * Each timed step opens an {@link Trace} section, so it shows up in Perfetto / systrace, and
+ * records its duration into a {@link MetricsRegistry} histogram, so it can be read back in-process
+ * (tests, the debug dump). Usage:
+ * <pre>
+ * long start = Tracing.begin("FlagRepository.open");
+ * try {
+ *     ...
+ * } finally {
+ *     Tracing.end(Tracing.FLAG_SOURCE_OPEN, start);
+ * }
+ * </pre>
+ * Debug builds also write the registry to {@value #DUMP_FILE_NAME} in the app's external files
+ * directory, e.g. {@code adb pull /sdcard/Android/data/com.tds.flagquiz/files/flagquiz-metrics.json}.
+ */
+public final class Tracing {
+
+    private static final String TAG = "Tracing";
+
+    // Histograms
+    public static final String ASSET_COPY = "asset_copy";
+    public static final String DB_OPEN = "db_open";
+    public static final String FLAG_SOURCE_OPEN = "flag_source_open";
+    public static final String WARM_UP = "warm_up";
+    public static final String CATALOG_LOAD = "catalog_load";
+    public static final String CATALOG_LOCALIZE = "catalog_localize";
+    public static final String PACK_LOAD = "pack_load";
+    public static final String RANDOM_QUESTIONS = "random_questions";
+    public static final String RANDOM_OPTIONS = "random_options";
+    public static final String SESSION_PLAN = "session_plan";
+    public static final String IMAGE_RESOLVE = "image_resolve";
+    public static final String IMAGE_DECODE = "image_decode";
+    public static final String NEXT_QUESTION_UI = "next_question_ui";
+    public static final String NEXT_TO_INTERACTIVE = "next_to_interactive";
+    public static final String STATS_FLUSH = "stats_flush";
+
+    // Counters
+    public static final String ASSET_COPY_SKIPPED = "asset_copy_skipped";
+    public static final String IMAGE_CACHE_HIT = "image_cache_hit";
+    public static final String IMAGE_CACHE_MISS = "image_cache_miss";
+
+    static final String DUMP_FILE_NAME = "flagquiz-metrics.json";
+
+    // Dumps outlive the activity that asks for them, so they get their own thread
+    private static final ExecutorService dumpExecutor = Executors.newSingleThreadExecutor();
+
+    private Tracing() {
+    }
+
+    /**
+     * Opens a trace section and returns the start time to pass to {@link #end}.
+     * Sections nest, and must be ended on the thread that began them.
+     */
+    public static long begin(String sectionName) {
+        Trace.beginSection(sectionName);
+        return System.nanoTime();
+    }
+
+    /**
+     * Closes the section opened by {@link #begin} and records its duration into {@code histogram}.
+     */
+    public static void end(String histogram, long startNanos) {
+        record(histogram, startNanos);
+        Trace.endSection();
+    }
+
+    /**
+     * Records the time since {@code startNanos} without a trace section, for spans that cross
+     * threads or frames.
+     */
+    public static void record(String histogram, long startNanos) {
+        MetricsRegistry.global().histogram(histogram).recordNanos(System.nanoTime() - startNanos);
+    }
+
+    public static void count(String counter) {
+        MetricsRegistry.global().counter(counter).increment();
+    }
+
+    /**
+     * Writes the metrics to the dump file in the background. Does nothing in release builds.
+     */
+    public static void dumpAsync(Context context) {
+        if (!BuildConfig.DEBUG) {
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        dumpExecutor.execute(() -> {
+            try {
+                File file = dump(appContext);
+                Log.d(TAG, "Metrics written to " + file);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not write metrics", e);
+            }
+        });
+    }
+
+    private static File dump(Context context) throws IOException {
+        File dir = context.getExternalFilesDir(null);
+        if (dir == null) {
+            dir = context.getFilesDir(); // No external storage mounted
+        }
+        File file = new File(dir, DUMP_FILE_NAME);
+        File temp = new File(dir, DUMP_FILE_NAME + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp);
+             Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            MetricsRegistry.global().writeJson(writer);
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Cannot move " + temp + " to " + file);
+        }
+        return file;
+    }
+}
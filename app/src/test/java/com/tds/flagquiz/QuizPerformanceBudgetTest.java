@@ -0,0 +1,337 @@
+package com.tds.flagquiz;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.res.Resources;
+import android.database.CursorWindow;
+import android.graphics.drawable.BitmapDrawable;
+import android.os.CancellationSignal;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.annotation.RealObject;
+import org.robolectric.shadows.ShadowResources;
+import org.robolectric.util.reflector.Direct;
+import org.robolectric.util.reflector.ForType;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+import static org.robolectric.util.reflector.Reflector.reflector;
+
+/**
+ * Performance budgets for one whole quiz, run on the JVM with Robolectric: MainActivity, then
+ * QuizActivity through all its questions, then ResultActivity, against the real flag data. The
+ * quiz is played once in English, the stored names, and once in French, whose names come from
+ * the catalog's name tables.
+ * <p>
+ * The budgets are ceilings on SQL statements, counted where SQLite runs them
+ * ({@link CountingSQLiteSession}), flag decodes, resource lookups by name from app code
+ * ({@link CountingResources}), and bytes allocated on the main thread while an answer is handled.
+ * Startup and each answer have fixed budgets. The whole quiz's budgets grow with the number of
+ * questions only by the work each question needs for itself, its flag decode and its stats row,
+ * plus a fixed amount. Going over one fails the build. If a change needs more, raise the budget
+ * in the same change and say why.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34, shadows = {QuizPerformanceBudgetTest.CountingSQLiteSession.class,
+        QuizPerformanceBudgetTest.CountingResources.class})
+public class QuizPerformanceBudgetTest {
+
+    // Startup reads the catalog, the device language's names and the similarity index from
+    // memory-mapped assets, in English and in French alike; SQLite is only the fallback
+    private static final int STARTUP_SQL_BUDGET = 0;
+    // Answers are buffered in memory; nothing may query or write per question
+    private static final int ANSWER_SQL_BUDGET = 0;
+    // The flush at the end, in one transaction, makes sure each question's flag_stats row exists
+    // (INSERT OR IGNORE) and adds the outcome to it (UPDATE): API 23's SQLite has no UPSERT
+    private static final int SQL_PER_QUESTION = 2;
+    // Then the quiz_history row, whose trigger keeps the summaries; the result screen reads them in one query
+    private static final int SQL_PER_QUIZ = 2;
+    private static final int QUIZ_SQL_BUDGET = SQL_PER_QUESTION * QuizActivity.NUMBER_OF_QUESTIONS_PER_QUIZ + SQL_PER_QUIZ;
+    // Each flag is decoded once, at the size the quiz shows it, whether by warm-up, prefetch or load
+    private static final int DECODE_BUDGET = QuizActivity.NUMBER_OF_QUESTIONS_PER_QUIZ;
+    // Flags come from the atlas index; looking drawables up by name is a linear scan of the resource table
+    private static final int GET_IDENTIFIER_BUDGET = 0;
+    // Tapping an option and then Next, over what two taps the app ignores cost. Robolectric's own
+    // share of a tap is in the baseline, so this is the app's: score text, button colours, the next
+    // question's texts and its flag from the cache. A query or a decode on the main thread costs far more
+    private static final long ANSWER_ALLOCATION_BUDGET_BYTES = 32 * 1024;
+
+    private static final long WAIT_TIMEOUT_MS = 10_000;
+
+    private interface Condition {
+        boolean isMet();
+    }
+
+    @Test
+    public void wholeQuizStaysWithinBudgets() throws Exception {
+        playWholeQuiz();
+    }
+
+    @Test
+    @Config(qualifiers = "fr")
+    public void wholeLocalizedQuizStaysWithinBudgets() throws Exception {
+        assertEquals("fr", Locale.getDefault().getLanguage());
+        playWholeQuiz();
+        FlagCatalog catalog = FlagRepository.getInstance(ApplicationProvider.getApplicationContext()).getCatalog();
+        assertTrue("The quiz was not played with localized names", catalog.isLocalized());
+    }
+
+    // The counters and the metrics registry are static, so the sandbox's other test may already
+    // have added to them: everything is measured from where they stand when this starts
+    private void playWholeQuiz() throws Exception {
+        long sqlAtStart = CountingSQLiteSession.statements.get();
+        long decodesAtStart = MetricsRegistry.global().histogram(Tracing.IMAGE_DECODE).getCount();
+        long getIdentifierCallsAtStart = CountingResources.appGetIdentifierCalls.get();
+
+        // Main screen: waits for the warm-up FlagQuizApp started with the process
+        ActivityController<MainActivity> main = Robolectric.buildActivity(MainActivity.class).setup();
+        View startButton = main.get().findViewById(R.id.start_quiz_button);
+        waitFor("the flag data", startButton::isEnabled);
+        long startupSql = CountingSQLiteSession.statements.get() - sqlAtStart;
+        assertTrue("Startup ran " + startupSql + " SQL statements, budget " + STARTUP_SQL_BUDGET,
+                startupSql <= STARTUP_SQL_BUDGET);
+
+        // Creating the stats database on first use is once per install, not per quiz; get it over with
+        Context context = ApplicationProvider.getApplicationContext();
+        AtomicBoolean statsOpen = new AtomicBoolean();
+        FlagStatsStore.getInstance(context).loadSummariesAsync((lifetime, recent) -> statsOpen.set(true));
+        waitFor("the stats database", statsOpen::get);
+        long quizSqlBefore = CountingSQLiteSession.statements.get();
+
+        startButton.performClick();
+        Intent quizIntent = shadowOf(main.get()).getNextStartedActivity();
+        assertNotNull("Start did not open the quiz", quizIntent);
+        ActivityController<QuizActivity> quiz = Robolectric.buildActivity(QuizActivity.class, quizIntent).setup();
+        QuizActivity quizActivity = quiz.get();
+        View optionA = quizActivity.findViewById(R.id.optionA_button);
+        View nextButton = quizActivity.findViewById(R.id.next_button);
+        ImageView flagImage = quizActivity.findViewById(R.id.flag_image);
+
+        long maxAnswerAllocation = 0;
+        for (int question = 0; question < QuizActivity.NUMBER_OF_QUESTIONS_PER_QUIZ; question++) {
+            waitFor("question " + (question + 1), () -> optionA.isEnabled() && flagImage.getDrawable() instanceof BitmapDrawable);
+
+            long sqlBefore = CountingSQLiteSession.statements.get();
+            long allocatedBefore = allocatedBytes();
+            optionA.performClick();
+            long answerAllocated = allocatedBytes() - allocatedBefore;
+
+            allocatedBefore = allocatedBytes();
+            optionA.performClick(); // Already answered, so the quiz ignores it: what a tap costs Robolectric
+            long ignoredTapAllocated = allocatedBytes() - allocatedBefore;
+
+            boolean lastQuestion = question == QuizActivity.NUMBER_OF_QUESTIONS_PER_QUIZ - 1;
+            allocatedBefore = allocatedBytes();
+            if (!lastQuestion) { // The last Next ends the quiz and starts the flush, budgeted below
+                nextButton.performClick();
+            }
+            answerAllocated += allocatedBytes() - allocatedBefore;
+            long answerSql = CountingSQLiteSession.statements.get() - sqlBefore;
+
+            assertTrue("Question " + (question + 1) + " ran " + answerSql + " SQL statements, budget " + ANSWER_SQL_BUDGET,
+                    answerSql <= ANSWER_SQL_BUDGET);
+            if (question > 0 && !lastQuestion) { // The first answer also loads classes and inflates state for good
+                maxAnswerAllocation = Math.max(maxAnswerAllocation, answerAllocated - 2 * ignoredTapAllocated);
+            }
+        }
+        nextButton.performClick();
+        assertTrue("An answer allocated " + maxAnswerAllocation + " bytes over two ignored taps, budget "
+                + ANSWER_ALLOCATION_BUDGET_BYTES, maxAnswerAllocation <= ANSWER_ALLOCATION_BUDGET_BYTES);
+
+        // Result screen: reads the summaries after the quiz flush, on the same writer thread
+        Intent resultIntent = shadowOf(quizActivity).getNextStartedActivity();
+        assertNotNull("The last Next did not open the results", resultIntent);
+        assertEquals(ResultActivity.class.getName(), resultIntent.getComponent().getClassName());
+        ActivityController<ResultActivity> result = Robolectric.buildActivity(ResultActivity.class, resultIntent).setup();
+        TextView lifetimeAccuracy = result.get().findViewById(R.id.lifetime_accuracy);
+        waitFor("the quiz summaries", () -> lifetimeAccuracy.getText().length() > 0);
+
+        long quizSql = CountingSQLiteSession.statements.get() - quizSqlBefore;
+        // The flush alone runs statements, so none counted means the shadow is not installed
+        assertTrue("No SQL statements counted for the quiz; is CountingSQLiteSession shadowing SQLiteSession?",
+                quizSql > 0);
+        assertTrue("The quiz ran " + quizSql + " SQL statements, budget " + QUIZ_SQL_BUDGET,
+                quizSql <= QUIZ_SQL_BUDGET);
+        long decodes = MetricsRegistry.global().histogram(Tracing.IMAGE_DECODE).getCount() - decodesAtStart;
+        assertTrue("Decoded " + decodes + " flags, budget " + DECODE_BUDGET, decodes <= DECODE_BUDGET);
+        long getIdentifierCalls = CountingResources.appGetIdentifierCalls.get() - getIdentifierCallsAtStart;
+        assertTrue("App code called getIdentifier " + getIdentifierCalls + " times, budget " + GET_IDENTIFIER_BUDGET,
+                getIdentifierCalls <= GET_IDENTIFIER_BUDGET);
+
+        result.pause().stop().destroy();
+        quiz.pause().stop().destroy();
+        main.pause().stop().destroy();
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    // Runs the main looper until the condition holds; background work runs on the app's real threads
+    private static void waitFor(String what, Condition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_TIMEOUT_MS;
+        while (true) {
+            shadowOf(Looper.getMainLooper()).idle();
+            if (condition.isMet()) {
+                return;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out waiting for " + what);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Counts every statement SQLite runs, on any connection and thread. SQLiteSession is where
+     * SQLiteStatement, queries and execSQL all end up, one call per execution (a query whose rows
+     * overflow a cursor window counts once per window filled). Connection setup and transaction
+     * BEGIN/COMMIT go to the connection directly and are not counted. SQLiteConnection itself is
+     * left to Robolectric's native SQLite shadow, which a shadow here would replace.
+     */
+    @Implements(className = "android.database.sqlite.SQLiteSession", isInAndroidSdk = false)
+    public static class CountingSQLiteSession {
+
+        static final AtomicLong statements = new AtomicLong(); // Since the sandbox started
+
+        @RealObject
+        private Object session;
+
+        @Implementation
+        protected void execute(String sql, Object[] bindArgs, int connectionFlags, CancellationSignal cancellationSignal) {
+            statements.incrementAndGet();
+            reflector(SessionReflector.class, session).execute(sql, bindArgs, connectionFlags, cancellationSignal);
+        }
+
+        @Implementation
+        protected long executeForLong(String sql, Object[] bindArgs, int connectionFlags, CancellationSignal cancellationSignal) {
+            statements.incrementAndGet();
+            return reflector(SessionReflector.class, session).executeForLong(sql, bindArgs, connectionFlags, cancellationSignal);
+        }
+
+        @Implementation
+        protected String executeForString(String sql, Object[] bindArgs, int connectionFlags, CancellationSignal cancellationSignal) {
+            statements.incrementAndGet();
+            return reflector(SessionReflector.class, session).executeForString(sql, bindArgs, connectionFlags, cancellationSignal);
+        }
+
+        @Implementation
+        protected ParcelFileDescriptor executeForBlobFileDescriptor(String sql, Object[] bindArgs, int connectionFlags,
+                                                                    CancellationSignal cancellationSignal) {
+            statements.incrementAndGet();
+            return reflector(SessionReflector.class, session)
+                    .executeForBlobFileDescriptor(sql, bindArgs, connectionFlags, cancellationSignal);
+        }
+
+        @Implementation
+        protected int executeForChangedRowCount(String sql, Object[] bindArgs, int connectionFlags,
+                                                CancellationSignal cancellationSignal) {
+            statements.incrementAndGet();
+            return reflector(SessionReflector.class, session)
+                    .executeForChangedRowCount(sql, bindArgs, connectionFlags, cancellationSignal);
+        }
+
+        @Implementation
+        protected long executeForLastInsertedRowId(String sql, Object[] bindArgs, int connectionFlags,
+                                                   CancellationSignal cancellationSignal) {
+            statements.incrementAndGet();
+            return reflector(SessionReflector.class, session)
+                    .executeForLastInsertedRowId(sql, bindArgs, connectionFlags, cancellationSignal);
+        }
+
+        @Implementation
+        protected int executeForCursorWindow(String sql, Object[] bindArgs, CursorWindow window, int startPos,
+                                             int requiredPos, boolean countAllRows, int connectionFlags,
+                                             CancellationSignal cancellationSignal) {
+            statements.incrementAndGet();
+            return reflector(SessionReflector.class, session).executeForCursorWindow(sql, bindArgs, window, startPos,
+                    requiredPos, countAllRows, connectionFlags, cancellationSignal);
+        }
+
+        @ForType(className = "android.database.sqlite.SQLiteSession")
+        interface SessionReflector {
+            @Direct
+            void execute(String sql, Object[] bindArgs, int connectionFlags, CancellationSignal cancellationSignal);
+
+            @Direct
+            long executeForLong(String sql, Object[] bindArgs, int connectionFlags, CancellationSignal cancellationSignal);
+
+            @Direct
+            String executeForString(String sql, Object[] bindArgs, int connectionFlags, CancellationSignal cancellationSignal);
+
+            @Direct
+            ParcelFileDescriptor executeForBlobFileDescriptor(String sql, Object[] bindArgs, int connectionFlags,
+                                                              CancellationSignal cancellationSignal);
+
+            @Direct
+            int executeForChangedRowCount(String sql, Object[] bindArgs, int connectionFlags,
+                                          CancellationSignal cancellationSignal);
+
+            @Direct
+            long executeForLastInsertedRowId(String sql, Object[] bindArgs, int connectionFlags,
+                                             CancellationSignal cancellationSignal);
+
+            @Direct
+            int executeForCursorWindow(String sql, Object[] bindArgs, CursorWindow window, int startPos, int requiredPos,
+                                       boolean countAllRows, int connectionFlags, CancellationSignal cancellationSignal);
+        }
+    }
+
+    /**
+     * Counts {@link Resources#getIdentifier} calls made from app code. Extends Robolectric's own
+     * Resources shadow, so everything else about resources behaves as before; calls from AndroidX,
+     * Material or the framework are theirs to make and are not counted.
+     */
+    @Implements(Resources.class)
+    public static class CountingResources extends ShadowResources {
+
+        static final AtomicLong appGetIdentifierCalls = new AtomicLong();
+
+        @RealObject
+        private Resources resources;
+
+        @Implementation
+        protected int getIdentifier(String name, String defType, String defPackage) {
+            if (calledFromApp()) {
+                appGetIdentifierCalls.incrementAndGet();
+            }
+            return reflector(ResourcesReflector.class, resources).getIdentifier(name, defType, defPackage);
+        }
+
+        private static boolean calledFromApp() {
+            for (StackTraceElement frame : new Throwable().getStackTrace()) {
+                String className = frame.getClassName();
+                if (className.startsWith("com.tds.flagquiz.") && !className.startsWith(QuizPerformanceBudgetTest.class.getName())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @ForType(Resources.class)
+        interface ResourcesReflector {
+            @Direct
+            int getIdentifier(String name, String defType, String defPackage);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.tds.flagquiz.benchmark;
+
+import com.tds.flagquiz.BinaryFlagSource;
+import com.tds.flagquiz.FlagCatalog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold catalog load: reading every row out of SQLite (FlagsDAO.loadCatalog) against decoding
+ * the memory-mapped binary catalog (BinaryFlagSource.loadCatalog). The connection and mapping
+ * are opened once, so this measures the read and decode, not opening the file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CatalogLoadBenchmark {
+
+    @Param({Datasets.REAL, "10000", "100000", "1000000"})
+    public String size;
+
+    private Path directory;
+    private Connection connection;
+    private ByteBuffer mappedCatalog;
+
+    @Setup(Level.Trial)
+    public void writeFiles() throws IOException, SQLException {
+        Datasets.Rows rows = Datasets.rows(size);
+        directory = Files.createTempDirectory("flagquiz-bench");
+        connection = Datasets.connect(Datasets.writeDatabase(rows, directory.resolve("flagquizdb.db")));
+        mappedCatalog = Datasets.writeBinaryCatalog(rows, directory.resolve(BinaryFlagSource.ASSET_NAME));
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException, SQLException {
+        connection.close();
+        mappedCatalog = null;
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public FlagCatalog sqlite() throws SQLException {
+        return Datasets.catalog(Datasets.readRows(connection));
+    }
+
+    @Benchmark
+    public FlagCatalog binary() {
+        return new BinaryFlagSource(mappedCatalog).loadCatalog();
+    }
+}
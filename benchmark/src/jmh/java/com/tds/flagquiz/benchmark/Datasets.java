@@ -0,0 +1,179 @@
+package com.tds.flagquiz.benchmark;
+
+import com.tds.flagquiz.FlagCatalog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Flag tables for the benchmarks: the real bundled dataset, or synthetic ones of a given size,
+ * in each of the forms the app reads them from (SQLite file, binary catalog, in-memory catalog).
+ */
+final class Datasets {
+
+    /** {@code @Param} value selecting the real dataset instead of a synthetic one. */
+    static final String REAL = "real";
+
+    private static final String DB_PROPERTY = "flagquiz.db";
+
+    private Datasets() {
+    }
+
+    /** Columns of a flag table, sorted by id. */
+    static final class Rows {
+        final int[] ids;
+        final String[] names;
+        final String[] images;
+
+        Rows(int[] ids, String[] names, String[] images) {
+            this.ids = ids;
+            this.names = names;
+            this.images = images;
+        }
+
+        int size() {
+            return ids.length;
+        }
+    }
+
+    /**
+     * @param size {@link #REAL} or a row count for a synthetic table.
+     */
+    static Rows rows(String size) throws SQLException {
+        return REAL.equals(size) ? readDatabase(realDatabase()) : synthetic(Integer.parseInt(size));
+    }
+
+    static Path realDatabase() {
+        String path = System.getProperty(DB_PROPERTY);
+        if (path == null) {
+            throw new IllegalStateException("Set -D" + DB_PROPERTY + " to the bundled flagquizdb.db");
+        }
+        return Path.of(path);
+    }
+
+    static Rows synthetic(int size) {
+        int[] ids = new int[size];
+        String[] names = new String[size];
+        String[] images = new String[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = i + 1;
+            names[i] = ("flag " + (i + 1)).intern();
+            images[i] = ("flag_" + (i + 1)).intern();
+        }
+        return new Rows(ids, names, images);
+    }
+
+    static FlagCatalog catalog(Rows rows) {
+        return new FlagCatalog(rows.ids, rows.names, rows.images);
+    }
+
+    static Connection connect(Path database) throws SQLException {
+        return DriverManager.getConnection("jdbc:sqlite:" + database.toAbsolutePath());
+    }
+
+    static Rows readDatabase(Path database) throws SQLException {
+        try (Connection connection = connect(database)) {
+            return readRows(connection);
+        }
+    }
+
+    /** Same query and interning as FlagsDAO.loadCatalog(). */
+    static Rows readRows(Connection connection) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<String> images = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT flag_id, flag_name, flag_image FROM flagquiztable")) {
+            while (resultSet.next()) {
+                ids.add(resultSet.getInt(1));
+                names.add(resultSet.getString(2).intern());
+                images.add(resultSet.getString(3).intern());
+            }
+        }
+        int[] idArray = new int[ids.size()];
+        for (int i = 0; i < idArray.length; i++) {
+            idArray[i] = ids.get(i);
+        }
+        return new Rows(idArray, names.toArray(new String[0]), images.toArray(new String[0]));
+    }
+
+    /**
+     * Writes {@code rows} to a new SQLite file with the app's current (version 4) schema.
+     */
+    static Path writeDatabase(Rows rows, Path file) throws SQLException, IOException {
+        Files.deleteIfExists(file);
+        try (Connection connection = connect(file)) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE flagquiztable (flag_id INTEGER PRIMARY KEY, flag_name TEXT, flag_image TEXT)");
+                statement.execute("CREATE INDEX flagquiztable_flag_name ON flagquiztable (flag_name)");
+                statement.execute("CREATE TABLE flag_names (flag_id INTEGER NOT NULL, locale TEXT NOT NULL," +
+                        " flag_name TEXT NOT NULL, PRIMARY KEY (locale, flag_id)) WITHOUT ROWID");
+                statement.execute("PRAGMA user_version = 4");
+            }
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO flagquiztable VALUES (?, ?, ?)")) {
+                for (int i = 0; i < rows.size(); i++) {
+                    insert.setInt(1, rows.ids[i]);
+                    insert.setString(2, rows.names[i]);
+                    insert.setString(3, rows.images[i]);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+        }
+        return file;
+    }
+
+    /**
+     * Writes {@code rows} in the binary catalog layout produced by the app's compileFlagCatalog task
+     * and returns it memory-mapped, as the app reads it.
+     */
+    static ByteBuffer writeBinaryCatalog(Rows rows, Path file) throws IOException {
+        byte[][] names = new byte[rows.size()][];
+        byte[][] images = new byte[rows.size()][];
+        int poolBytes = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            names[i] = rows.names[i].getBytes(StandardCharsets.UTF_8);
+            images[i] = rows.images[i].getBytes(StandardCharsets.UTF_8);
+            poolBytes += names[i].length + images[i].length;
+        }
+
+        // No localized names: the locale table and name tables are empty
+        int poolOffset = 24 + rows.size() * 16;
+        ByteBuffer out = ByteBuffer.allocate(poolOffset + poolBytes).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(0x43474C46).putInt(2).putInt(rows.size()).putInt(poolOffset).putInt(0).putInt(poolOffset);
+        int poolPosition = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            out.putInt(rows.ids[i]);
+            out.putInt(poolPosition);
+            poolPosition += names[i].length;
+            out.putInt(poolPosition);
+            poolPosition += images[i].length;
+            out.putShort((short) names[i].length);
+            out.putShort((short) images[i].length);
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            out.put(names[i]).put(images[i]);
+        }
+        Files.write(file, out.array());
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.tds.flagquiz.benchmark;
+
+import com.tds.flagquiz.QuizEngine;
+import com.tds.flagquiz.QuizSessionPlan;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays a whole quiz through QuizEngine, answering every question in turn. Apart from the
+ * engine itself this should allocate nothing; run with -prof gc to check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class QuizEngineBenchmark {
+
+    private QuizSessionPlan plan;
+
+    @Setup(Level.Trial)
+    public void buildPlan() throws SQLException {
+        plan = QuizSessionPlan.build(Datasets.catalog(Datasets.rows(Datasets.REAL)), 10, 4);
+    }
+
+    @Benchmark
+    public int playQuiz() {
+        QuizEngine engine = new QuizEngine(plan);
+        int slot = 0;
+        do {
+            engine.answer(slot);
+            slot = (slot + 1) % plan.getOptionsPerQuestion();
+        } while (engine.next());
+        return engine.getCorrectCount();
+    }
+}
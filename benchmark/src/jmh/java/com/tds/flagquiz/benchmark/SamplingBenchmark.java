@@ -0,0 +1,67 @@
+package com.tds.flagquiz.benchmark;
+
+import com.tds.flagquiz.FlagCatalog;
+import com.tds.flagquiz.FlagsModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory sampling from FlagCatalog, the path the quiz takes once the catalog is loaded.
+ * Synthetic sizes show the cost stays flat as the flag set grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SamplingBenchmark {
+
+    @Param({Datasets.REAL, "10000", "100000", "1000000"})
+    public String size;
+
+    private FlagCatalog catalog;
+    private int[] excluded;
+    private int[] out;
+    private int excludedFlagId;
+
+    @Setup(Level.Trial)
+    public void loadCatalog() throws SQLException {
+        catalog = Datasets.catalog(Datasets.rows(size));
+        excluded = new int[1];
+        out = new int[10];
+    }
+
+    @Setup(Level.Iteration)
+    public void pickExcludedFlag() {
+        excludedFlagId = catalog.getId(ThreadLocalRandom.current().nextInt(catalog.size()));
+    }
+
+    @Benchmark
+    public List<FlagsModel> sampleQuestions() {
+        return catalog.sampleQuestions(10);
+    }
+
+    @Benchmark
+    public List<FlagsModel> sampleOptions() {
+        return catalog.sampleOptions(excludedFlagId, 3);
+    }
+
+    // The allocation-free primitive both of the above are built on
+    @Benchmark
+    public int sampleIndices() {
+        excluded[0] = catalog.indexOf(excludedFlagId);
+        int drawn = catalog.sampleIndices(excluded, 1, 3, out);
+        return drawn + out[0];
+    }
+}
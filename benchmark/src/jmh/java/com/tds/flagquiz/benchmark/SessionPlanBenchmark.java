@@ -0,0 +1,41 @@
+package com.tds.flagquiz.benchmark;
+
+import com.tds.flagquiz.FlagCatalog;
+import com.tds.flagquiz.QuizSessionPlan;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds a whole quiz the way QuizActivity does: 10 questions of 4 options each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SessionPlanBenchmark {
+
+    @Param({Datasets.REAL, "10000", "100000", "1000000"})
+    public String size;
+
+    private FlagCatalog catalog;
+
+    @Setup(Level.Trial)
+    public void loadCatalog() throws SQLException {
+        catalog = Datasets.catalog(Datasets.rows(size));
+    }
+
+    @Benchmark
+    public QuizSessionPlan buildPlan() {
+        return QuizSessionPlan.build(catalog, 10, 4);
+    }
+}
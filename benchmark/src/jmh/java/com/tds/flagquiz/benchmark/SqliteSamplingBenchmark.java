@@ -0,0 +1,154 @@
+package com.tds.flagquiz.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sampling straight from SQLite, the fallback path when the catalog is not loaded: the original
+ * ORDER BY RANDOM() queries against the rowid probes FlagsDAO uses now. The probe statements
+ * are the same SQL as FlagsDAO.prepareProbeStatements().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SqliteSamplingBenchmark {
+
+    private static final int QUESTIONS = 10;
+    private static final int OPTIONS = 3;
+
+    @Param({Datasets.REAL, "10000", "100000", "1000000"})
+    public String size;
+
+    private Path database;
+    private Connection connection;
+    private PreparedStatement randomQuestions;
+    private PreparedStatement randomOptions;
+    private PreparedStatement nextId;
+    private PreparedStatement name;
+    private PreparedStatement image;
+    private long minFlagId;
+    private long maxFlagId;
+    private int excludedFlagId;
+
+    @Setup(Level.Trial)
+    public void openDatabase() throws IOException, SQLException {
+        database = Datasets.writeDatabase(Datasets.rows(size), Files.createTempFile("flagquiz-bench", ".db"));
+        connection = Datasets.connect(database);
+        randomQuestions = connection.prepareStatement(
+                "SELECT flag_id, flag_name, flag_image FROM flagquiztable ORDER BY RANDOM() LIMIT ?");
+        randomOptions = connection.prepareStatement(
+                "SELECT flag_id, flag_name, flag_image FROM flagquiztable WHERE flag_id != ? ORDER BY RANDOM() LIMIT ?");
+        nextId = connection.prepareStatement(
+                "SELECT flag_id FROM flagquiztable WHERE flag_id >= ? ORDER BY flag_id LIMIT 1");
+        name = connection.prepareStatement("SELECT flag_name FROM flagquiztable WHERE flag_id = ?");
+        image = connection.prepareStatement("SELECT flag_image FROM flagquiztable WHERE flag_id = ?");
+        try (Statement statement = connection.createStatement();
+             ResultSet bounds = statement.executeQuery("SELECT min(flag_id), max(flag_id) FROM flagquiztable")) {
+            bounds.next();
+            minFlagId = bounds.getLong(1);
+            maxFlagId = bounds.getLong(2);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void pickExcludedFlag() {
+        excludedFlagId = (int) ThreadLocalRandom.current().nextLong(minFlagId, maxFlagId + 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDatabase() throws IOException, SQLException {
+        connection.close();
+        Files.deleteIfExists(database);
+    }
+
+    @Benchmark
+    public void orderByRandomQuestions(Blackhole blackhole) throws SQLException {
+        randomQuestions.setInt(1, QUESTIONS);
+        readAll(randomQuestions, blackhole);
+    }
+
+    @Benchmark
+    public void orderByRandomOptions(Blackhole blackhole) throws SQLException {
+        randomOptions.setInt(1, excludedFlagId);
+        randomOptions.setInt(2, OPTIONS);
+        readAll(randomOptions, blackhole);
+    }
+
+    @Benchmark
+    public void rowidProbeQuestions(Blackhole blackhole) throws SQLException {
+        probe(QUESTIONS, Long.MIN_VALUE, blackhole);
+    }
+
+    @Benchmark
+    public void rowidProbeOptions(Blackhole blackhole) throws SQLException {
+        probe(OPTIONS, excludedFlagId, blackhole);
+    }
+
+    private static void readAll(PreparedStatement statement, Blackhole blackhole) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getInt(1));
+                blackhole.consume(resultSet.getString(2));
+                blackhole.consume(resultSet.getString(3));
+            }
+        }
+    }
+
+    // Same shape as FlagsDAO.probeRandomFlags: random id, next existing id at or above it, skip repeats
+    private void probe(int count, long excluded, Blackhole blackhole) throws SQLException {
+        long[] picked = new long[count];
+        int found = 0;
+        while (found < count) {
+            long flagId = nextIdAtOrAbove(ThreadLocalRandom.current().nextLong(minFlagId, maxFlagId + 1));
+            if (flagId < 0 || flagId == excluded || contains(picked, found, flagId)) {
+                continue;
+            }
+            picked[found++] = flagId;
+            blackhole.consume(queryText(name, flagId));
+            blackhole.consume(queryText(image, flagId));
+        }
+    }
+
+    private long nextIdAtOrAbove(long flagId) throws SQLException {
+        nextId.setLong(1, flagId);
+        try (ResultSet resultSet = nextId.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : -1;
+        }
+    }
+
+    private static String queryText(PreparedStatement statement, long flagId) throws SQLException {
+        statement.setLong(1, flagId);
+        try (ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getString(1) : "";
+        }
+    }
+
+    private static boolean contains(long[] values, int length, long value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
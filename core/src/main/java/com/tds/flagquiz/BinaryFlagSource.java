@@ -0,0 +1,270 @@
+package com.tds.flagquiz;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * FlagSource over the compact binary catalog compiled from flagquizdb.db at build time
+ * (the {@code compileFlagCatalog} Gradle task), read in place from a memory-mapped or direct buffer.
+ * <p>
+ * Layout, little-endian:
+ * <pre>
+ * header   int magic 'FLGC', int format version, int record count, int string pool offset,
+ *          int locale count, int locale table offset
+ * records  record count x 16 bytes, sorted by flag_id:
+ *          int flag_id, int name offset, int image offset, short name length, short image length
+ * locales  locale count x 8 bytes, one per locale of flag_names, sorted by tag:
+ *          int tag offset, int tag length
+ * names    locale count x record count x 8 bytes, one table per locale in locale order, each
+ *          lined up with the records: int name offset, int name length
+ * pool     UTF-8 bytes of every name, image key and locale tag, offsets relative to the pool start
+ * </pre>
+ */
+public final class BinaryFlagSource implements FlagSource {
+
+    public static final String ASSET_NAME = "flagcatalog.bin";
+
+    static final int MAGIC = 0x43474C46; // "FLGC" read as a little-endian int
+    static final int FORMAT_VERSION = 2;
+    static final int HEADER_BYTES = 24;
+    static final int RECORD_BYTES = 16;
+    static final int LOCALE_BYTES = 8;
+    static final int NAME_BYTES = 8;
+
+    private final ByteBuffer buffer;
+    private final int recordCount;
+    private final int poolOffset;
+    private final int localeCount;
+    private final int localeTableOffset;
+    private final Random random = new Random();
+    private int[] recordsByName; // Guarded by this; built on the first page request
+
+    /**
+     * @param buffer Whole catalog file. Only absolute reads are used, so it is never repositioned.
+     * @throws IllegalArgumentException if the buffer does not hold a catalog this reader understands.
+     */
+    public BinaryFlagSource(ByteBuffer buffer) {
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (this.buffer.limit() < HEADER_BYTES || this.buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a flag catalog");
+        }
+        if (this.buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported flag catalog version " + this.buffer.getInt(4));
+        }
+        recordCount = this.buffer.getInt(8);
+        poolOffset = this.buffer.getInt(12);
+        localeCount = this.buffer.getInt(16);
+        localeTableOffset = this.buffer.getInt(20);
+        long namesEnd = localeTableOffset + (long) localeCount * (LOCALE_BYTES + (long) recordCount * NAME_BYTES);
+        if (recordCount < 0 || localeCount < 0 || localeTableOffset != HEADER_BYTES + (long) recordCount * RECORD_BYTES
+                || poolOffset != namesEnd || poolOffset > this.buffer.limit()) {
+            throw new IllegalArgumentException("Corrupt flag catalog header");
+        }
+    }
+
+    public int size() {
+        return recordCount;
+    }
+
+    @Override
+    public FlagCatalog loadCatalog() {
+        if (recordCount == 0) {
+            return null;
+        }
+        int[] ids = new int[recordCount];
+        String[] names = new String[recordCount];
+        String[] images = new String[recordCount];
+        for (int i = 0; i < recordCount; i++) {
+            ids[i] = idAt(i);
+            names[i] = nameAt(i).intern();
+            images[i] = imageAt(i).intern();
+        }
+        return new FlagCatalog(ids, names, images);
+    }
+
+    /**
+     * Reads the names of every flag in one locale from that locale's name table; the tables of
+     * other locales are not touched, so their pages are never read in from the mapping.
+     */
+    @Override
+    public String[] loadLocalizedNames(String locale, FlagCatalog catalog) {
+        int localeIndex = localeIndexOf(locale);
+        if (localeIndex < 0) {
+            return null;
+        }
+        String[] names = new String[catalog.size()];
+        int table = localeTableOffset + localeCount * LOCALE_BYTES + localeIndex * recordCount * NAME_BYTES;
+        for (int record = 0; record < recordCount; record++) {
+            int row = catalog.indexOf(idAt(record));
+            int length = buffer.getInt(table + record * NAME_BYTES + 4);
+            if (row >= 0 && length > 0) {
+                names[row] = readString(buffer.getInt(table + record * NAME_BYTES), length);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @return The locales the catalog has names for, such as "de" or "zh-Hant", sorted.
+     */
+    public List<String> getNameLocales() {
+        List<String> locales = new ArrayList<>(localeCount);
+        for (int i = 0; i < localeCount; i++) {
+            locales.add(localeAt(i));
+        }
+        return locales;
+    }
+
+    private int localeIndexOf(String locale) {
+        for (int i = 0; i < localeCount; i++) {
+            if (localeAt(i).equals(locale)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String localeAt(int index) {
+        int base = localeTableOffset + index * LOCALE_BYTES;
+        return readString(buffer.getInt(base), buffer.getInt(base + 4));
+    }
+
+    @Override
+    public List<FlagsModel> getRandomQuestions(int limit) {
+        return sample(Integer.MIN_VALUE, limit, false);
+    }
+
+    @Override
+    public List<FlagsModel> getRandomOptions(int excludedFlagId, int numberOfOptions) {
+        return sample(excludedFlagId, numberOfOptions, true);
+    }
+
+    @Override
+    public synchronized List<FlagsModel> getPageByName(String afterName, int afterFlagId, int limit) {
+        List<FlagsModel> modelList = new ArrayList<>();
+        int[] order = recordsByName();
+        // Records are sorted by id, so name order is a one-off sort of the record indices
+        int low = 0;
+        if (afterName != null) {
+            int high = order.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compareByName(order[mid], afterName, afterFlagId) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+        }
+        for (int i = low; i < order.length && modelList.size() < limit; i++) {
+            int record = order[i];
+            modelList.add(new FlagsModel(idAt(record), nameAt(record), imageAt(record)));
+        }
+        return modelList;
+    }
+
+    private int[] recordsByName() {
+        if (recordsByName == null) {
+            String[] names = new String[recordCount];
+            Integer[] order = new Integer[recordCount];
+            for (int i = 0; i < recordCount; i++) {
+                names[i] = nameAt(i);
+                order[i] = i;
+            }
+            // Ties on name fall back to record order, which is flag_id order
+            Arrays.sort(order, (a, b) -> names[a].compareTo(names[b]));
+            recordsByName = new int[recordCount];
+            for (int i = 0; i < recordCount; i++) {
+                recordsByName[i] = order[i];
+            }
+        }
+        return recordsByName;
+    }
+
+    private int compareByName(int record, String name, int flagId) {
+        int byText = nameAt(record).compareTo(name);
+        return byText != 0 ? byText : Integer.compare(idAt(record), flagId);
+    }
+
+    @Override
+    public void close() {
+        // The buffer is released by the GC once unreferenced; nothing else is held
+    }
+
+    // Records are fixed width, so a random record is a direct read. Duplicates are redrawn,
+    // which is cheap because the number wanted is tiny next to the catalog.
+    private synchronized List<FlagsModel> sample(int excludedFlagId, int count, boolean exclude) {
+        List<FlagsModel> modelList = new ArrayList<>();
+        int available = recordCount - (exclude && indexOf(excludedFlagId) >= 0 ? 1 : 0);
+        int wanted = Math.min(count, available);
+        int[] picked = new int[Math.max(wanted, 0)];
+        int found = 0;
+        while (found < wanted) {
+            int record = random.nextInt(recordCount);
+            int flagId = idAt(record);
+            if ((exclude && flagId == excludedFlagId) || contains(picked, found, record)) {
+                continue;
+            }
+            picked[found++] = record;
+            modelList.add(new FlagsModel(flagId, nameAt(record), imageAt(record)));
+        }
+        return modelList;
+    }
+
+    /**
+     * Returns the record index of {@code flagId} by binary search, or -1 if it is not present.
+     */
+    public int indexOf(int flagId) {
+        int low = 0;
+        int high = recordCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int id = idAt(mid);
+            if (id < flagId) {
+                low = mid + 1;
+            } else if (id > flagId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int idAt(int record) {
+        return buffer.getInt(HEADER_BYTES + record * RECORD_BYTES);
+    }
+
+    private String nameAt(int record) {
+        int base = HEADER_BYTES + record * RECORD_BYTES;
+        return readString(buffer.getInt(base + 4), buffer.getShort(base + 12) & 0xFFFF);
+    }
+
+    private String imageAt(int record) {
+        int base = HEADER_BYTES + record * RECORD_BYTES;
+        return readString(buffer.getInt(base + 8), buffer.getShort(base + 14) & 0xFFFF);
+    }
+
+    private String readString(int offset, int length) {
+        byte[] bytes = new byte[length];
+        int start = poolOffset + offset;
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
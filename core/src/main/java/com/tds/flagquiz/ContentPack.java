@@ -0,0 +1,151 @@
+package com.tds.flagquiz;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An optional set of flags shipped apart from the bundled ones, such as subdivisions or
+ * historical flags. Each pack is its own database asset with a {@code flagquiztable}, plus its
+ * own flag atlas, and is only installed and read once the player selects it.
+ * <p>
+ * Packs number their flags from 1 like the bundled table. In the app a pack flag's id carries
+ * the pack id in its high bits ({@link #globalId(int, int)}), so flags of every pack can share one
+ * catalog, one stats table and one saved quiz without colliding. The bundled flags are pack 0 and
+ * keep their ids unchanged.
+ */
+public final class ContentPack {
+
+    /** The packs on offer, one per line: pack id, name, version and title, separated by tabs. */
+    public static final String MANIFEST_ASSET_NAME = "packs/packs.txt";
+
+    /** Pack id of the flags in flagquizdb.db. */
+    public static final int BUNDLED_PACK_ID = 0;
+
+    static final int LOCAL_ID_BITS = 20;
+    public static final int MAX_LOCAL_ID = (1 << LOCAL_ID_BITS) - 1;
+    public static final int MAX_PACK_ID = (1 << (31 - LOCAL_ID_BITS)) - 1; // Ids stay positive
+
+    private final int id;
+    private final String name;
+    private final int version;
+    private final String title;
+
+    public ContentPack(int id, String name, int version, String title) {
+        this.id = id;
+        this.name = name;
+        this.version = version;
+        this.title = title;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /** Short lower-case name, used in asset and file names. */
+    public String getName() {
+        return name;
+    }
+
+    /** Version of the pack's database; a different installed version is copied again. */
+    public int getVersion() {
+        return version;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDatabaseAssetName() {
+        return "packs/" + name + ".db";
+    }
+
+    /** Installed under this name in the database directory, which cannot hold sub-directories. */
+    public String getInstalledDatabaseName() {
+        return "pack_" + name + ".db";
+    }
+
+    /** Asset directory holding the pack's flag atlas, laid out like the bundled one. */
+    public String getAtlasDirectory() {
+        return "packs/" + name + "/";
+    }
+
+    /** Schema name the pack's database is attached under. */
+    public String getSchemaName() {
+        return "pack_" + name;
+    }
+
+    /**
+     * @return The app-wide id of flag {@code localId} of pack {@code packId}.
+     */
+    public static int globalId(int packId, int localId) {
+        return (packId << LOCAL_ID_BITS) | localId;
+    }
+
+    public static int packOf(int flagId) {
+        return flagId >>> LOCAL_ID_BITS;
+    }
+
+    public static int localIdOf(int flagId) {
+        return flagId & MAX_LOCAL_ID;
+    }
+
+    /**
+     * Checks the ids of a catalog read from this pack. Each must be a flag of this pack, with a
+     * stored flag_id from 1 to {@link #MAX_LOCAL_ID}; any other stored id would have landed on the
+     * ids of another pack or of the bundled flags.
+     *
+     * @return The first row whose id is not one of this pack's, or -1 if there is none.
+     */
+    public int findForeignRow(FlagCatalog catalog) {
+        for (int row = 0; row < catalog.size(); row++) {
+            int flagId = catalog.getId(row);
+            if (packOf(flagId) != id || localIdOf(flagId) == 0) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the pack manifest. Blank lines and lines starting with '#' are skipped.
+     *
+     * @throws IOException if a line is malformed, or two packs share an id or a name.
+     */
+    public static List<ContentPack> readManifest(Reader reader) throws IOException {
+        List<ContentPack> packs = new ArrayList<>();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            if (fields.length != 4) {
+                throw new IOException("Pack manifest line " + lineNumber + ": expected 4 fields");
+            }
+            ContentPack pack;
+            try {
+                pack = new ContentPack(Integer.parseInt(fields[0].trim()), fields[1].trim(),
+                        Integer.parseInt(fields[2].trim()), fields[3].trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Pack manifest line " + lineNumber + ": bad number", e);
+            }
+            if (pack.id <= BUNDLED_PACK_ID || pack.id > MAX_PACK_ID || !pack.name.matches("[a-z0-9_]+")) {
+                throw new IOException("Pack manifest line " + lineNumber + ": bad pack id or name");
+            }
+            for (ContentPack other : packs) {
+                if (other.id == pack.id || other.name.equals(pack.name)) {
+                    throw new IOException("Pack manifest line " + lineNumber + ": duplicate pack " + pack.name);
+                }
+            }
+            packs.add(pack);
+        }
+        return packs;
+    }
+}
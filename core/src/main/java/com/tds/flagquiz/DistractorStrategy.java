@@ -0,0 +1,15 @@
+package com.tds.flagquiz;
+
+/**
+ * Chooses the wrong answers shown next to a question's flag.
+ * Used by {@link QuizSessionPlan#build} when the quiz is planned.
+ */
+public interface DistractorStrategy {
+
+    /**
+     * Writes up to {@code count} distinct catalog rows other than {@code questionRow} to {@code out}.
+     *
+     * @return The number of rows written, smaller than {@code count} only if the catalog runs out.
+     */
+    int pickDistractors(FlagCatalog catalog, int questionRow, int count, int[] out);
+}
@@ -0,0 +1,105 @@
+package com.tds.flagquiz;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Where each flag sits in the flag atlas, the {@value #ASSET_NAME} asset written by the
+ * {@code packFlagAtlas} Gradle task. The atlas holds every flag as its own lossless WebP image, one
+ * after the other, so decoding a flag reads that flag's bytes and nothing else.
+ * <p>
+ * Layout, little-endian:
+ * <pre>
+ * header   int magic 'FLGA', int format version, int record count
+ * records  record count x 20 bytes, sorted by flag_id:
+ *          int flag_id, int offset, int length, int width, int height
+ * images   the WebP images, each at its record's offset from the start of the asset
+ * </pre>
+ */
+public final class FlagAtlasIndex {
+
+    public static final String ASSET_NAME = "flagatlas.bin";
+
+    static final int MAGIC = 0x41474C46; // "FLGA" read as a little-endian int
+    static final int FORMAT_VERSION = 2;
+    static final int HEADER_BYTES = 12;
+    static final int RECORD_INTS = 5;
+
+    private final int[] ids;      // Sorted, for binary search
+    private final int[] images;   // offset, length, width, height per record, at record * 4
+
+    private FlagAtlasIndex(int[] ids, int[] images) {
+        this.ids = ids;
+        this.images = images;
+    }
+
+    /**
+     * Reads the records of the atlas in {@code source}. The images stay in the buffer; copy one out
+     * with {@link #getOffset(int)} and {@link #getLength(int)}.
+     *
+     * @throws IllegalArgumentException if the buffer does not hold an atlas this reader understands.
+     */
+    public static FlagAtlasIndex read(ByteBuffer source) {
+        ByteBuffer buffer = source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a flag atlas");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported flag atlas version " + buffer.getInt(4));
+        }
+        int count = buffer.getInt(8);
+        long recordsEnd = HEADER_BYTES + (long) count * RECORD_INTS * 4;
+        if (count < 0 || recordsEnd > buffer.limit()) {
+            throw new IllegalArgumentException("Corrupt flag atlas header");
+        }
+        int[] ids = new int[count];
+        int[] images = new int[count * (RECORD_INTS - 1)];
+        int position = HEADER_BYTES;
+        for (int i = 0; i < count; i++) {
+            ids[i] = buffer.getInt(position);
+            position += 4;
+            for (int field = 0; field < RECORD_INTS - 1; field++) {
+                images[i * (RECORD_INTS - 1) + field] = buffer.getInt(position);
+                position += 4;
+            }
+            int offset = images[i * (RECORD_INTS - 1)];
+            int length = images[i * (RECORD_INTS - 1) + 1];
+            if (offset < recordsEnd || length <= 0 || (long) offset + length > buffer.limit()
+                    || (i > 0 && ids[i] <= ids[i - 1])) {
+                throw new IllegalArgumentException("Corrupt flag atlas record for flag_id " + ids[i]);
+            }
+        }
+        return new FlagAtlasIndex(ids, images);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Returns the record of {@code flagId}, for the getters below, or -1 if the atlas does not hold it.
+     */
+    public int find(int flagId) {
+        int found = Arrays.binarySearch(ids, flagId);
+        return found >= 0 ? found : -1;
+    }
+
+    /** Where the flag's WebP image starts, from the start of the asset. */
+    public int getOffset(int record) {
+        return images[record * (RECORD_INTS - 1)];
+    }
+
+    /** Size of the flag's WebP image in bytes. */
+    public int getLength(int record) {
+        return images[record * (RECORD_INTS - 1) + 1];
+    }
+
+    public int getWidth(int record) {
+        return images[record * (RECORD_INTS - 1) + 2];
+    }
+
+    public int getHeight(int record) {
+        return images[record * (RECORD_INTS - 1) + 3];
+    }
+}
@@ -0,0 +1,250 @@
+package com.tds.flagquiz;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Read-only in-memory copy of {@code flagquiztable}, held in parallel arrays.
+ * <p>
+ * Questions and distractors are drawn with a partial Fisher-Yates shuffle over a
+ * permutation of row indices, so a draw of {@code k} flags costs O(k + excluded)
+ * instead of a full table scan and sort.
+ * <p>
+ * Names are the stored English ones unless the catalog came from {@link #withLocalizedNames},
+ * which also fixes their collation order once so that sorting never compares strings.
+ */
+public final class FlagCatalog {
+
+    private final int[] ids;
+    private final String[] names;
+    private final String[] images;
+    private final int[] nameRanks; // Position of each row in collation order, or null for String order
+
+    // flag_id lookup: ids sorted ascending, paired with the row each one lives in.
+    private final int[] sortedIds;
+    private final int[] sortedRows;
+
+    // Scratch permutation of row indices and its inverse (row index -> position in perm).
+    // Any permutation is a valid starting point for Fisher-Yates, so it is never reset.
+    private final int[] perm;
+    private final int[] posOf;
+    private final Random random;
+
+    public FlagCatalog(int[] ids, String[] names, String[] images) {
+        this(ids, names, images, new Random());
+    }
+
+    public FlagCatalog(int[] ids, String[] names, String[] images, Random random) {
+        this(ids, names, images, random, null);
+    }
+
+    private FlagCatalog(int[] ids, String[] names, String[] images, Random random, int[] nameRanks) {
+        if (ids.length != names.length || ids.length != images.length) {
+            throw new IllegalArgumentException("Catalog columns must have the same length");
+        }
+        this.ids = ids;
+        this.names = names;
+        this.images = images;
+        this.random = random;
+        this.nameRanks = nameRanks;
+
+        int size = ids.length;
+        long[] keyed = new long[size];
+        for (int i = 0; i < size; i++) {
+            keyed[i] = ((long) ids[i] << 32) | i;
+        }
+        Arrays.sort(keyed);
+        sortedIds = new int[size];
+        sortedRows = new int[size];
+        for (int i = 0; i < size; i++) {
+            sortedIds[i] = (int) (keyed[i] >> 32);
+            sortedRows[i] = (int) keyed[i];
+        }
+
+        perm = new int[size];
+        posOf = new int[size];
+        for (int i = 0; i < size; i++) {
+            perm[i] = i;
+            posOf[i] = i;
+        }
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    public String getName(int index) {
+        return names[index];
+    }
+
+    public String getImage(int index) {
+        return images[index];
+    }
+
+    /**
+     * Returns one catalog holding the flags of every part, in order, such as the bundled flags
+     * followed by those of the selected content packs. Flag ids must not repeat across parts.
+     * Names are the parts' stored names; localize the result, not the parts.
+     */
+    public static FlagCatalog merge(List<FlagCatalog> parts) {
+        int size = 0;
+        for (FlagCatalog part : parts) {
+            size += part.size();
+        }
+        int[] ids = new int[size];
+        String[] names = new String[size];
+        String[] images = new String[size];
+        int row = 0;
+        for (FlagCatalog part : parts) {
+            int count = part.size();
+            System.arraycopy(part.ids, 0, ids, row, count);
+            System.arraycopy(part.names, 0, names, row, count);
+            System.arraycopy(part.images, 0, images, row, count);
+            row += count;
+        }
+        return new FlagCatalog(ids, names, images);
+    }
+
+    /**
+     * Returns a catalog with the same flags under other names, in the same row order so row
+     * indices stay valid. The names are ranked with {@code collator} here, once: a collation key
+     * per name, sorted, so {@link #compareNames} is an int comparison from then on.
+     *
+     * @param localizedNames Name of each row, or null in a slot to keep the stored name.
+     */
+    public FlagCatalog withLocalizedNames(String[] localizedNames, Collator collator) {
+        int size = ids.length;
+        String[] merged = new String[size];
+        CollationKey[] keys = new CollationKey[size];
+        Integer[] order = new Integer[size];
+        for (int row = 0; row < size; row++) {
+            merged[row] = localizedNames[row] != null ? localizedNames[row] : names[row];
+            keys[row] = collator.getCollationKey(merged[row]);
+            order[row] = row;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int byKey = keys[a].compareTo(keys[b]);
+            return byKey != 0 ? byKey : Integer.compare(ids[a], ids[b]);
+        });
+        int[] ranks = new int[size];
+        for (int rank = 0; rank < size; rank++) {
+            ranks[order[rank]] = rank;
+        }
+        return new FlagCatalog(ids, merged, images, random, ranks);
+    }
+
+    /**
+     * @return true if the names came from {@link #withLocalizedNames} rather than the flag table.
+     */
+    public boolean isLocalized() {
+        return nameRanks != null;
+    }
+
+    /**
+     * Orders two rows by name, then by flag_id: collation order for localized names, String
+     * order (as the flag table's index sorts them) otherwise.
+     */
+    public int compareNames(int indexA, int indexB) {
+        if (nameRanks != null) {
+            return Integer.compare(nameRanks[indexA], nameRanks[indexB]);
+        }
+        int byText = names[indexA].compareTo(names[indexB]);
+        return byText != 0 ? byText : Integer.compare(ids[indexA], ids[indexB]);
+    }
+
+    public FlagsModel toModel(int index) {
+        return new FlagsModel(ids[index], names[index], images[index]);
+    }
+
+    /**
+     * Returns the row index of {@code flagId}, or -1 if it is not in the catalog.
+     */
+    public int indexOf(int flagId) {
+        int found = Arrays.binarySearch(sortedIds, flagId);
+        return found >= 0 ? sortedRows[found] : -1;
+    }
+
+    /**
+     * Picks up to {@code count} distinct row indices uniformly at random, skipping the rows in
+     * {@code excluded}, and writes them to {@code out}.
+     *
+     * @param excluded      Row indices that must not be drawn (may be null).
+     * @param excludedCount Number of valid entries at the start of {@code excluded}.
+     * @param count         Number of rows wanted.
+     * @param out           Destination, must hold at least {@code count} entries.
+     * @return The number of rows written, smaller than {@code count} only if the catalog runs out.
+     * @throws IllegalArgumentException if {@code count} is negative or {@code out} cannot hold it.
+     */
+    public synchronized int sampleIndices(int[] excluded, int excludedCount, int count, int[] out) {
+        if (count < 0 || count > out.length) {
+            throw new IllegalArgumentException("Cannot draw " + count + " rows into " + out.length);
+        }
+        int size = ids.length;
+
+        // Park the excluded rows at the front of the permutation so the draw below never sees them.
+        int start = 0;
+        for (int e = 0; e < excludedCount; e++) {
+            int row = excluded[e];
+            if (row < 0 || row >= size || posOf[row] < start) {
+                continue; // Unknown or already parked (duplicate in the exclusion set)
+            }
+            swap(start++, posOf[row]);
+        }
+
+        int drawn = Math.min(count, size - start);
+        for (int i = 0; i < drawn; i++) {
+            int slot = start + i;
+            swap(slot, slot + random.nextInt(size - slot));
+            out[i] = perm[slot];
+        }
+        return drawn;
+    }
+
+    /**
+     * Returns {@code limit} distinct random flags.
+     */
+    public List<FlagsModel> sampleQuestions(int limit) {
+        return sample(null, 0, limit);
+    }
+
+    /**
+     * Returns {@code count} distinct random flags other than {@code excludedFlagId}.
+     */
+    public List<FlagsModel> sampleOptions(int excludedFlagId, int count) {
+        int excludedIndex = indexOf(excludedFlagId);
+        if (excludedIndex < 0) {
+            return sample(null, 0, count);
+        }
+        return sample(new int[]{excludedIndex}, 1, count);
+    }
+
+    private List<FlagsModel> sample(int[] excluded, int excludedCount, int count) {
+        if (count <= 0) {
+            return new ArrayList<>();
+        }
+        int[] picked = new int[Math.min(count, ids.length)];
+        int drawn = sampleIndices(excluded, excludedCount, picked.length, picked);
+        List<FlagsModel> result = new ArrayList<>(drawn);
+        for (int i = 0; i < drawn; i++) {
+            result.add(toModel(picked[i]));
+        }
+        return result;
+    }
+
+    private void swap(int a, int b) {
+        int rowA = perm[a];
+        int rowB = perm[b];
+        perm[a] = rowB;
+        perm[b] = rowA;
+        posOf[rowB] = a;
+        posOf[rowA] = b;
+    }
+}
@@ -0,0 +1,159 @@
+package com.tds.flagquiz;
+
+import java.util.Arrays;
+
+/**
+ * Prefix search over the flag names of a catalog, built once so a search box can filter on every
+ * keystroke without a query. Each word of a name starts a key, so "isl" finds "aland islands" as
+ * well as "iceland"; matching ignores case, accents and punctuation. Results come back in the
+ * catalog's name order, the same order the gallery pages through.
+ * <p>
+ * A search is a binary search plus a walk over the matching keys, and writes into the caller's
+ * array. It reuses internal scratch space, so one index must not be searched from two threads at once.
+ */
+public final class FlagNameIndex {
+
+    private final String[] keys;    // Folded name from the start of one of its words, sorted
+    private final int[] keyRows;    // Catalog row of each key
+    private final int[] nameOrder;  // Catalog rows in FlagCatalog.compareNames order
+    private final int[] rankOfRow;  // Position of each catalog row in nameOrder
+
+    private final boolean[] matched; // Scratch, by catalog row
+    private final int[] matchedRanks; // Scratch
+
+    private FlagNameIndex(String[] keys, int[] keyRows, int[] nameOrder, int[] rankOfRow) {
+        this.keys = keys;
+        this.keyRows = keyRows;
+        this.nameOrder = nameOrder;
+        this.rankOfRow = rankOfRow;
+        this.matched = new boolean[nameOrder.length];
+        this.matchedRanks = new int[nameOrder.length];
+    }
+
+    public static FlagNameIndex build(FlagCatalog catalog) {
+        int size = catalog.size();
+
+        Integer[] byName = new Integer[size];
+        for (int row = 0; row < size; row++) {
+            byName[row] = row;
+        }
+        Arrays.sort(byName, catalog::compareNames);
+        int[] nameOrder = new int[size];
+        int[] rankOfRow = new int[size];
+        for (int rank = 0; rank < size; rank++) {
+            nameOrder[rank] = byName[rank];
+            rankOfRow[byName[rank]] = rank;
+        }
+
+        // One key per word start; names are short, so this is a few keys per flag
+        int keyCount = 0;
+        for (int row = 0; row < size; row++) {
+            keyCount += wordStarts(FlagNameMatcher.fold(catalog.getName(row)), null);
+        }
+        String[] keyed = new String[keyCount];
+        int[] rowsOfKeys = new int[keyCount];
+        int[] starts = new int[64];
+        int next = 0;
+        for (int row = 0; row < size; row++) {
+            String name = FlagNameMatcher.fold(catalog.getName(row));
+            if (starts.length < name.length()) {
+                starts = new int[name.length()];
+            }
+            int words = wordStarts(name, starts);
+            for (int w = 0; w < words; w++) {
+                keyed[next] = name.substring(starts[w]);
+                rowsOfKeys[next] = row;
+                next++;
+            }
+        }
+
+        Integer[] keyOrder = new Integer[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keyOrder[i] = i;
+        }
+        Arrays.sort(keyOrder, (a, b) -> keyed[a].compareTo(keyed[b]));
+        String[] keys = new String[keyCount];
+        int[] keyRows = new int[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = keyed[keyOrder[i]];
+            keyRows[i] = rowsOfKeys[keyOrder[i]];
+        }
+        return new FlagNameIndex(keys, keyRows, nameOrder, rankOfRow);
+    }
+
+    /** Number of flags, and so the largest number of results a search can return. */
+    public int size() {
+        return nameOrder.length;
+    }
+
+    /**
+     * Finds the flags with a word starting with {@code prefix}; a blank prefix matches every flag.
+     *
+     * @param out Receives the matching catalog rows in name order; must hold {@link #size()} entries.
+     * @return The number of rows written to {@code out}.
+     */
+    public int search(String prefix, int[] out) {
+        String query = FlagNameMatcher.fold(prefix);
+        if (query.isEmpty()) {
+            System.arraycopy(nameOrder, 0, out, 0, nameOrder.length);
+            return nameOrder.length;
+        }
+
+        int found = 0;
+        for (int i = lowerBound(query); i < keys.length && keys[i].startsWith(query); i++) {
+            int row = keyRows[i];
+            if (!matched[row]) {
+                matched[row] = true;
+                matchedRanks[found++] = rankOfRow[row];
+            }
+        }
+        Arrays.sort(matchedRanks, 0, found);
+        for (int i = 0; i < found; i++) {
+            int row = nameOrder[matchedRanks[i]];
+            matched[row] = false;
+            out[i] = row;
+        }
+        return found;
+    }
+
+    /** Position of catalog row {@code row} in name order. */
+    public int rankOf(int row) {
+        return rankOfRow[row];
+    }
+
+    /** Catalog row at position {@code rank} in name order. */
+    public int rowAtRank(int rank) {
+        return nameOrder[rank];
+    }
+
+    private int lowerBound(String query) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(query) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Writes the index of each word's first character to starts (if not null) and returns the count
+    private static int wordStarts(String name, int[] starts) {
+        int count = 0;
+        boolean inWord = false;
+        for (int i = 0; i < name.length(); i++) {
+            boolean letterOrDigit = Character.isLetterOrDigit(name.charAt(i));
+            if (letterOrDigit && !inWord) {
+                if (starts != null) {
+                    starts[count] = i;
+                }
+                count++;
+            }
+            inWord = letterOrDigit;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,209 @@
+package com.tds.flagquiz;
+
+import java.text.Normalizer;
+
+/**
+ * Typo-tolerant lookup of a typed country name, for the typed-answer quiz mode.
+ * <p>
+ * Names are folded (lower case, accents and punctuation dropped, spaces collapsed) and put in a
+ * BK-tree keyed by Levenshtein distance. A lookup only visits the subtrees whose edge distance is
+ * within the tolerance of the distance to their parent, so a keystroke compares against a small
+ * part of the catalog instead of every name. The tolerance grows with the length of what was typed:
+ * short names must be exact, longer ones may have a few typos.
+ * <p>
+ * Lookups reuse internal scratch rows, so one matcher must not be searched from two threads at once.
+ */
+public final class FlagNameMatcher {
+
+    /** Returned by {@link #match(String, int)} when no name is close enough. */
+    public static final int NO_MATCH = -1;
+
+    private final FlagCatalog catalog;
+
+    // BK-tree, one node per distinct folded name; node 0 is the root
+    private final String[] keys;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final int[] edgeDistance; // Distance from the node's key to its parent's
+    private final int[] nodeOfRow;    // Catalog row -> node holding its folded name
+    private final int[] rowOfNode;    // Node -> first catalog row with that name
+    private final int nodeCount;
+
+    // Scratch for the lookups
+    private final int[] stack;
+    private int[] previousRow;
+    private int[] currentRow;
+
+    private FlagNameMatcher(FlagCatalog catalog) {
+        this.catalog = catalog;
+        int size = catalog.size();
+        keys = new String[size];
+        firstChild = new int[size];
+        nextSibling = new int[size];
+        edgeDistance = new int[size];
+        nodeOfRow = new int[size];
+        rowOfNode = new int[size];
+        stack = new int[size];
+        previousRow = new int[32];
+        currentRow = new int[32];
+
+        int nodes = 0;
+        for (int row = 0; row < size; row++) {
+            String key = fold(catalog.getName(row));
+            if (key.isEmpty()) {
+                nodeOfRow[row] = -1;
+                continue;
+            }
+            nodeOfRow[row] = insert(key, nodes);
+            if (nodeOfRow[row] == nodes) {
+                rowOfNode[nodes] = row;
+                nodes++;
+            }
+        }
+        nodeCount = nodes;
+    }
+
+    public static FlagNameMatcher build(FlagCatalog catalog) {
+        return new FlagNameMatcher(catalog);
+    }
+
+    // Adds key as node newNode unless an equal key is already in the tree; returns the node holding it
+    private int insert(String key, int newNode) {
+        keys[newNode] = key;
+        firstChild[newNode] = -1;
+        nextSibling[newNode] = -1;
+        if (newNode == 0) {
+            return 0;
+        }
+        int node = 0;
+        while (true) {
+            int distance = distance(key, keys[node]);
+            if (distance == 0) {
+                return node; // Two flags with the same folded name share a node
+            }
+            int child = firstChild[node];
+            while (child >= 0 && edgeDistance[child] != distance) {
+                child = nextSibling[child];
+            }
+            if (child < 0) {
+                edgeDistance[newNode] = distance;
+                nextSibling[newNode] = firstChild[node];
+                firstChild[node] = newNode;
+                return newNode;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Finds the flag whose name is closest to {@code typed}.
+     *
+     * @param expectedFlagId Returned if its name is the closest, even when another flag has the same name.
+     * @return The flag id of the closest name within the tolerance for {@code typed}, or {@link #NO_MATCH}.
+     */
+    public int match(String typed, int expectedFlagId) {
+        String query = fold(typed);
+        if (query.isEmpty() || nodeCount == 0) {
+            return NO_MATCH;
+        }
+        int tolerance = toleranceFor(query.length());
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+
+        int depth = 0;
+        stack[depth++] = 0;
+        while (depth > 0) {
+            int node = stack[--depth];
+            int distance = distance(query, keys[node]);
+            if (distance < bestDistance || (distance == bestDistance && keys[node].compareTo(keys[best]) < 0)) {
+                best = node;
+                bestDistance = distance;
+            }
+            // Triangle inequality: only children this close to the parent can be within tolerance
+            for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+                if (Math.abs(edgeDistance[child] - distance) <= tolerance) {
+                    stack[depth++] = child;
+                }
+            }
+        }
+        if (bestDistance > tolerance) {
+            return NO_MATCH;
+        }
+
+        int expectedRow = catalog.indexOf(expectedFlagId);
+        if (expectedRow >= 0 && nodeOfRow[expectedRow] == best) {
+            return expectedFlagId;
+        }
+        return catalog.getId(rowOfNode[best]);
+    }
+
+    /**
+     * Typos allowed for a folded query of {@code length} characters.
+     */
+    static int toleranceFor(int length) {
+        if (length <= 3) {
+            return 0;
+        }
+        if (length <= 6) {
+            return 1;
+        }
+        return length <= 12 ? 2 : 3;
+    }
+
+    /**
+     * Lower case, without accents, with every run of non-alphanumerics turned into one space
+     * and none at either end, so "Cote d'Ivoire", "cote  divoire" and the accented spelling all fold alike.
+     */
+    static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            int type = Character.getType(c);
+            if (type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK
+                    || type == Character.ENCLOSING_MARK || c == '\'' || c == '\u2019') {
+                continue; // Accents, and apostrophes inside a word
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && folded.length() > 0) {
+                    folded.append(' ');
+                }
+                pendingSpace = false;
+                folded.append(Character.toLowerCase(c));
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return folded.toString();
+    }
+
+    // Levenshtein distance over two rows of scratch
+    private int distance(String a, String b) {
+        int columns = b.length() + 1;
+        if (previousRow.length < columns) {
+            previousRow = new int[columns * 2];
+            currentRow = new int[columns * 2];
+        }
+        int[] previous = previousRow;
+        int[] current = currentRow;
+        for (int j = 0; j < columns; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j < columns; j++) {
+                int substitution = previous[j - 1] + (ca == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[columns - 1];
+    }
+}
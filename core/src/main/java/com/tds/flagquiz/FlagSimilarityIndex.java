@@ -0,0 +1,100 @@
+package com.tds.flagquiz;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Precomputed nearest neighbours of every flag by how it looks, read from the
+ * {@value #ASSET_NAME} asset written by the {@code computeFlagSimilarity} Gradle task.
+ * The task compares a colour histogram and a coarse colour layout of each flag image, so no
+ * image analysis happens on the device.
+ * <p>
+ * Layout, little-endian:
+ * <pre>
+ * header   int magic 'FLGS', int format version, int record count, int neighbours per record (k)
+ * records  record count x (4 + 4k) bytes, sorted by flag_id:
+ *          int flag_id, k x int neighbour flag_id, most similar first, -1 if there are fewer
+ * </pre>
+ */
+public final class FlagSimilarityIndex {
+
+    public static final String ASSET_NAME = "flagsimilarity.bin";
+
+    static final int MAGIC = 0x53474C46; // "FLGS" read as a little-endian int
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 16;
+
+    private final int[] ids;
+    private final int[] neighbourIds; // k per record, at record * k
+    private final int neighboursPerFlag;
+
+    private FlagSimilarityIndex(int[] ids, int[] neighbourIds, int neighboursPerFlag) {
+        this.ids = ids;
+        this.neighbourIds = neighbourIds;
+        this.neighboursPerFlag = neighboursPerFlag;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the buffer does not hold an index this reader understands.
+     */
+    public static FlagSimilarityIndex read(ByteBuffer source) {
+        ByteBuffer buffer = source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a flag similarity index");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported flag similarity index version " + buffer.getInt(4));
+        }
+        int count = buffer.getInt(8);
+        int k = buffer.getInt(12);
+        if (count < 0 || k < 0 || (long) HEADER_BYTES + (long) count * (1 + k) * 4 > buffer.limit()) {
+            throw new IllegalArgumentException("Corrupt flag similarity index header");
+        }
+        int[] ids = new int[count];
+        int[] neighbourIds = new int[count * k];
+        int position = HEADER_BYTES;
+        for (int i = 0; i < count; i++) {
+            ids[i] = buffer.getInt(position);
+            position += 4;
+            for (int n = 0; n < k; n++) {
+                neighbourIds[i * k + n] = buffer.getInt(position);
+                position += 4;
+            }
+        }
+        return new FlagSimilarityIndex(ids, neighbourIds, k);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public int getNeighboursPerFlag() {
+        return neighboursPerFlag;
+    }
+
+    /**
+     * Resolves the neighbour ids to rows of {@code catalog}: entry {@code row * k + n} is the
+     * n-th most similar flag to catalog row {@code row}, or -1 where the index has nothing
+     * (flags missing from either side are skipped).
+     */
+    public int[] toCatalogRows(FlagCatalog catalog) {
+        int k = neighboursPerFlag;
+        int[] rows = new int[catalog.size() * k];
+        Arrays.fill(rows, -1);
+        for (int i = 0; i < ids.length; i++) {
+            int row = catalog.indexOf(ids[i]);
+            if (row < 0) {
+                continue;
+            }
+            int next = 0;
+            for (int n = 0; n < k; n++) {
+                int neighbourRow = catalog.indexOf(neighbourIds[i * k + n]);
+                if (neighbourRow >= 0 && neighbourRow != row) {
+                    rows[row * k + next++] = neighbourRow;
+                }
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,58 @@
+package com.tds.flagquiz;
+
+import java.util.List;
+
+/**
+ * Read access to the bundled flag table, whatever it is stored in.
+ * Implemented by the SQLite-backed {@code FlagsDAO} in the app and the memory-mapped {@link BinaryFlagSource}.
+ */
+public interface FlagSource {
+
+    /**
+     * Reads every flag into a new FlagCatalog.
+     *
+     * @return The catalog, or null if an error occurs or there are no flags.
+     */
+    FlagCatalog loadCatalog();
+
+    /**
+     * Reads the names of every flag in one locale, lined up with the rows of {@code catalog}.
+     *
+     * @param locale Language code, such as "de", or "zh-Hant" for Traditional Chinese.
+     * @return The name of each catalog row, null where the locale has none; or null if it has no names at all.
+     */
+    String[] loadLocalizedNames(String locale, FlagCatalog catalog);
+
+    /**
+     * Retrieves a specified number of distinct random flags.
+     *
+     * @param limit The maximum number of random questions to retrieve.
+     * @return A List of FlagsModel objects, or an empty list if an error occurs or no data is found.
+     */
+    List<FlagsModel> getRandomQuestions(int limit);
+
+    /**
+     * Retrieves a specified number of distinct random flags, excluding a specific flag ID.
+     *
+     * @param excludedFlagId  The ID of the flag to exclude from the options.
+     * @param numberOfOptions The number of random options to retrieve.
+     * @return A List of FlagsModel objects, or an empty list if an error occurs or no data.
+     */
+    List<FlagsModel> getRandomOptions(int excludedFlagId, int numberOfOptions);
+
+    /**
+     * Retrieves the flags that follow a position in (flag_name, flag_id) order, one page at a time.
+     * Paging from the last row seen rather than by offset keeps every page as cheap as the first.
+     *
+     * @param afterName   Name of the last flag of the previous page, or null for the first page.
+     * @param afterFlagId ID of the last flag of the previous page; ignored for the first page.
+     * @param limit       The maximum number of flags to retrieve.
+     * @return A List of FlagsModel objects in name order, or an empty list after the last page or on error.
+     */
+    List<FlagsModel> getPageByName(String afterName, int afterFlagId, int limit);
+
+    /**
+     * Releases anything held by this source.
+     */
+    void close();
+}
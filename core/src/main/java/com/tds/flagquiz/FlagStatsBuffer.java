@@ -0,0 +1,75 @@
+package com.tds.flagquiz;
+
+import java.util.Arrays;
+
+/**
+ * In-memory buffer of per-flag quiz outcomes waiting to be written to the stats store.
+ * <p>
+ * Recording appends to primitive arrays under a short lock, so it is safe and cheap to call
+ * from a tap handler; the arrays only grow (by doubling) if a quiz outlasts their capacity.
+ * {@link #drain()} hands everything recorded so far to the writer and starts over.
+ */
+public final class FlagStatsBuffer {
+
+    public static final byte OUTCOME_CORRECT = 1;
+    public static final byte OUTCOME_WRONG = 2;
+    public static final byte OUTCOME_SKIPPED = 3;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] flagIds = new int[INITIAL_CAPACITY];
+    private byte[] outcomes = new byte[INITIAL_CAPACITY];
+    private long[] timesMillis = new long[INITIAL_CAPACITY];
+    private int size;
+
+    public synchronized void record(int flagId, byte outcome, long timeMillis) {
+        if (size == flagIds.length) {
+            int capacity = size * 2;
+            flagIds = Arrays.copyOf(flagIds, capacity);
+            outcomes = Arrays.copyOf(outcomes, capacity);
+            timesMillis = Arrays.copyOf(timesMillis, capacity);
+        }
+        flagIds[size] = flagId;
+        outcomes[size] = outcome;
+        timesMillis[size] = timeMillis;
+        size++;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Takes everything recorded so far and empties the buffer.
+     *
+     * @return The recorded outcomes, or null if there were none.
+     */
+    public synchronized Batch drain() {
+        if (size == 0) {
+            return null;
+        }
+        Batch batch = new Batch(Arrays.copyOf(flagIds, size), Arrays.copyOf(outcomes, size),
+                Arrays.copyOf(timesMillis, size));
+        size = 0;
+        return batch;
+    }
+
+    /**
+     * Outcomes in the order they were recorded.
+     */
+    public static final class Batch {
+        public final int[] flagIds;
+        public final byte[] outcomes;
+        public final long[] timesMillis;
+
+        Batch(int[] flagIds, byte[] outcomes, long[] timesMillis) {
+            this.flagIds = flagIds;
+            this.outcomes = outcomes;
+            this.timesMillis = timesMillis;
+        }
+
+        public int size() {
+            return flagIds.length;
+        }
+    }
+}
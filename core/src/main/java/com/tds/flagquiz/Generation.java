@@ -0,0 +1,31 @@
+package com.tds.flagquiz;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cancellation token for work that a newer request supersedes, such as loading a question the
+ * user has already moved past. The requester calls {@link #advance()} for each new request and
+ * keeps the returned token with its work; the work checks {@link #isCurrent(int)} before it
+ * runs and again before it touches the UI.
+ */
+public final class Generation {
+
+    private final AtomicInteger current = new AtomicInteger();
+
+    /**
+     * Starts a new generation, making every earlier token stale.
+     *
+     * @return The token for the new generation.
+     */
+    public int advance() {
+        return current.incrementAndGet();
+    }
+
+    public int get() {
+        return current.get();
+    }
+
+    public boolean isCurrent(int token) {
+        return current.get() == token;
+    }
+}
@@ -0,0 +1,164 @@
+package com.tds.flagquiz;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Fixed-size latency histogram fine enough to tell a 17 ms frame from a 20 ms one, for latencies
+ * the user sees. Unlike {@link MetricsRegistry.Histogram}, whose power-of-two buckets are only
+ * good for order-of-magnitude timings, every power of two here is split into
+ * {@value #SUB_BUCKETS} linear sub-buckets, so a quantile is off by at most 12.5%.
+ * <p>
+ * Values are in microseconds: exact below {@value #LINEAR_LIMIT_MICROS} us, then log-linear up to
+ * about 33 s, with anything longer in the last bucket. Memory stays at {@value #BUCKETS} longs no
+ * matter how many samples are recorded, and the counts can be saved and merged across sessions.
+ * Not thread-safe without external locking.
+ */
+public final class LatencyHistogram {
+
+    static final int SUB_BUCKETS = 8;
+    static final int LINEAR_LIMIT_MICROS = 16;
+    private static final int FIRST_LOG_MAGNITUDE = 4;  // log2(LINEAR_LIMIT_MICROS)
+    private static final int LAST_LOG_MAGNITUDE = 24;  // Up to 2^25 us
+    static final int BUCKETS = LINEAR_LIMIT_MICROS + (LAST_LOG_MAGNITUDE - FIRST_LOG_MAGNITUDE + 1) * SUB_BUCKETS;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long maxMicros;
+
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1000);
+    }
+
+    public void recordMicros(long micros) {
+        if (micros < 0) {
+            micros = 0;
+        }
+        counts[bucketOf(micros)]++;
+        count++;
+        if (micros > maxMicros) {
+            maxMicros = micros;
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    /**
+     * Returns an upper bound for the {@code quantile} (0..1) latency: the top of the bucket it
+     * falls in, capped at the largest sample seen. 0 if nothing was recorded.
+     */
+    public long getQuantileMicros(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBoundMicros(i), maxMicros);
+            }
+        }
+        return maxMicros;
+    }
+
+    /** Adds every sample of {@code other} to this histogram. */
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        maxMicros = Math.max(maxMicros, other.maxMicros);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = 0;
+        }
+        count = 0;
+        maxMicros = 0;
+    }
+
+    /**
+     * Writes the counts as a version, the bucket count, the max and then only the non-empty
+     * buckets (index, count), so a typical histogram takes a few hundred bytes.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        int used = 0;
+        for (long bucketCount : counts) {
+            if (bucketCount != 0) {
+                used++;
+            }
+        }
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(BUCKETS);
+        out.writeLong(maxMicros);
+        out.writeInt(used);
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] != 0) {
+                out.writeShort(i);
+                out.writeLong(counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads counts written by {@link #writeTo(DataOutput)}.
+     *
+     * @throws IOException if the data is from another format or bucket layout.
+     */
+    public static LatencyHistogram readFrom(DataInput in) throws IOException {
+        int version = in.readInt();
+        int buckets = in.readInt();
+        if (version != FORMAT_VERSION || buckets != BUCKETS) {
+            throw new IOException("Unsupported latency histogram format " + version + "/" + buckets);
+        }
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.maxMicros = in.readLong();
+        int used = in.readInt();
+        for (int n = 0; n < used; n++) {
+            int bucket = in.readShort();
+            long bucketCount = in.readLong();
+            if (bucket < 0 || bucket >= BUCKETS || bucketCount < 0) {
+                throw new IOException("Corrupt latency histogram bucket " + bucket);
+            }
+            histogram.counts[bucket] += bucketCount;
+            histogram.count += bucketCount;
+        }
+        return histogram;
+    }
+
+    static int bucketOf(long micros) {
+        if (micros < LINEAR_LIMIT_MICROS) {
+            return (int) micros;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+        if (magnitude > LAST_LOG_MAGNITUDE) {
+            return BUCKETS - 1;
+        }
+        // Top three bits after the leading one pick the sub-bucket
+        int subBucket = (int) (micros >>> (magnitude - 3)) - SUB_BUCKETS;
+        return LINEAR_LIMIT_MICROS + (magnitude - FIRST_LOG_MAGNITUDE) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBoundMicros(int bucket) {
+        if (bucket < LINEAR_LIMIT_MICROS) {
+            return bucket;
+        }
+        if (bucket == BUCKETS - 1) {
+            return Long.MAX_VALUE;
+        }
+        int magnitude = FIRST_LOG_MAGNITUDE + (bucket - LINEAR_LIMIT_MICROS) / SUB_BUCKETS;
+        int subBucket = (bucket - LINEAR_LIMIT_MICROS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << (magnitude - 3)) - 1;
+    }
+}
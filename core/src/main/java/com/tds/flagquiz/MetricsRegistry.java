@@ -0,0 +1,216 @@
+package com.tds.flagquiz;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lightweight in-process metrics: named counters and latency histograms.
+ * <p>
+ * Recording is lock-free and allocation-free once a metric exists, so it is cheap enough for
+ * the quiz loop. Histograms use power-of-two buckets, which keeps them a fixed size while still
+ * telling a 2 ms query from a 20 ms one. The whole registry can be written out as JSON to
+ * compare runs across builds and devices.
+ */
+public final class MetricsRegistry {
+
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * The process-wide registry the app records into.
+     */
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    public Counter counter(String name) {
+        Counter counter = counters.get(name);
+        return counter != null ? counter : counters.computeIfAbsent(name, key -> new Counter());
+    }
+
+    public Histogram histogram(String name) {
+        Histogram histogram = histograms.get(name);
+        return histogram != null ? histogram : histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    /**
+     * Zeroes every metric, e.g. between test cases. Metrics keep their identity, so references
+     * held by callers stay valid.
+     */
+    public void reset() {
+        for (Counter counter : counters.values()) {
+            counter.reset();
+        }
+        for (Histogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Writes every metric as one JSON object, names sorted. Latencies are in microseconds.
+     */
+    public void writeJson(Appendable out) throws IOException {
+        out.append("{\n  \"counters\": {");
+        String separator = "\n";
+        for (Map.Entry<String, Counter> entry : new TreeMap<>(counters).entrySet()) {
+            out.append(separator).append("    \"").append(entry.getKey()).append("\": ")
+                    .append(Long.toString(entry.getValue().get()));
+            separator = ",\n";
+        }
+        out.append("\n  },\n  \"histograms\": {");
+        separator = "\n";
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+            out.append(separator).append("    \"").append(entry.getKey()).append("\": ");
+            entry.getValue().writeJson(out);
+            separator = ",\n";
+        }
+        out.append("\n  }\n}\n");
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        try {
+            writeJson(json);
+        } catch (IOException e) {
+            throw new AssertionError(e); // StringBuilder does not throw
+        }
+        return json.toString();
+    }
+
+    public static final class Counter {
+        private final AtomicLong value = new AtomicLong();
+
+        public void increment() {
+            value.incrementAndGet();
+        }
+
+        public void add(long delta) {
+            value.addAndGet(delta);
+        }
+
+        public long get() {
+            return value.get();
+        }
+
+        void reset() {
+            value.set(0);
+        }
+    }
+
+    /**
+     * Latency histogram. Bucket {@code i} holds samples up to {@code 2^(i + 10)} ns, so the first
+     * bucket is everything up to about 1 us and the last one everything over about 34 s.
+     */
+    public static final class Histogram {
+        static final int BUCKETS = 26;
+        private static final int FIRST_BUCKET_SHIFT = 10;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sumNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        public void recordNanos(long nanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+            buckets.incrementAndGet(bucketOf(nanos));
+            count.incrementAndGet();
+            sumNanos.addAndGet(nanos);
+            long max;
+            while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+                // Lost a race with another recorder, retry against the new max
+            }
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getSumNanos() {
+            return sumNanos.get();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public long getMeanNanos() {
+            long samples = count.get();
+            return samples > 0 ? sumNanos.get() / samples : 0;
+        }
+
+        /**
+         * Returns an upper bound for the {@code quantile} (0..1) latency: the top of the bucket it
+         * falls in, capped at the largest sample seen. 0 if nothing was recorded.
+         */
+        public long getQuantileNanos(double quantile) {
+            long samples = count.get();
+            if (samples == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * samples));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBoundNanos(i), maxNanos.get());
+                }
+            }
+            return maxNanos.get();
+        }
+
+        /**
+         * Sample count of every bucket, lowest first.
+         */
+        public long[] getBucketCounts() {
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+            }
+            return counts;
+        }
+
+        public static long bucketUpperBoundNanos(int bucket) {
+            return bucket == BUCKETS - 1 ? Long.MAX_VALUE : 1L << (bucket + FIRST_BUCKET_SHIFT);
+        }
+
+        static int bucketOf(long nanos) {
+            if (nanos <= 1L << FIRST_BUCKET_SHIFT) {
+                return 0;
+            }
+            // Smallest i with nanos <= 2^(i + 10)
+            int bucket = 64 - Long.numberOfLeadingZeros(nanos - 1) - FIRST_BUCKET_SHIFT;
+            return Math.min(bucket, BUCKETS - 1);
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            sumNanos.set(0);
+            maxNanos.set(0);
+        }
+
+        void writeJson(Appendable out) throws IOException {
+            out.append("{\"count\": ").append(Long.toString(getCount()))
+                    .append(", \"mean_us\": ").append(Long.toString(getMeanNanos() / 1000))
+                    .append(", \"p50_us\": ").append(Long.toString(getQuantileNanos(0.50) / 1000))
+                    .append(", \"p90_us\": ").append(Long.toString(getQuantileNanos(0.90) / 1000))
+                    .append(", \"p99_us\": ").append(Long.toString(getQuantileNanos(0.99) / 1000))
+                    .append(", \"max_us\": ").append(Long.toString(getMaxNanos() / 1000))
+                    .append(", \"buckets\": [");
+            for (int i = 0; i < BUCKETS; i++) {
+                out.append(i == 0 ? "" : ", ").append(Long.toString(buckets.get(i)));
+            }
+            out.append("]}");
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.tds.flagquiz;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small fixed pool whose queue runs work by priority: what the user is waiting for first,
+ * prefetch last, and tasks of equal priority in the order they were submitted.
+ * <p>
+ * Meant to be created once for the whole process. Idle threads time out, so there is
+ * nothing to shut down when a screen goes away.
+ * <p>
+ * A task can carry a {@link Generation} token. If the generation has moved on by the time the
+ * task reaches the front of the queue, the task is dropped without running.
+ */
+public final class PriorityExecutor implements Executor {
+
+    /** Work the user is waiting on: the flag on screen, the quiz being opened. */
+    public static final int PRIORITY_INTERACTIVE = 0;
+    /** Ordinary background work. */
+    public static final int PRIORITY_NORMAL = 1;
+    /** Work for later, such as decoding upcoming flags. */
+    public static final int PRIORITY_PREFETCH = 2;
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final ThreadPoolExecutor pool;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger droppedCount = new AtomicInteger();
+
+    public PriorityExecutor(String name, int threads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1); // Below the UI thread
+            return thread;
+        };
+        pool = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), threadFactory);
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    /** Runs {@code task} at {@link #PRIORITY_NORMAL}. */
+    @Override
+    public void execute(Runnable task) {
+        execute(PRIORITY_NORMAL, task);
+    }
+
+    public void execute(int priority, Runnable task) {
+        pool.execute(new PrioritizedTask(priority, sequence.getAndIncrement(), task, null, 0));
+    }
+
+    /**
+     * Runs {@code task} unless {@code generation} has moved past {@code token} before it starts.
+     */
+    public void execute(int priority, Generation generation, int token, Runnable task) {
+        pool.execute(new PrioritizedTask(priority, sequence.getAndIncrement(), task, generation, token));
+    }
+
+    /** Tasks dropped so far because their generation was stale. */
+    public int getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private final class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+        private final int priority;
+        private final long sequence;
+        private final Runnable task;
+        private final Generation generation;
+        private final int token;
+
+        PrioritizedTask(int priority, long sequence, Runnable task, Generation generation, int token) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.task = task;
+            this.generation = generation;
+            this.token = token;
+        }
+
+        @Override
+        public void run() {
+            if (generation != null && !generation.isCurrent(token)) {
+                droppedCount.incrementAndGet(); // Superseded while it waited
+                return;
+            }
+            task.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            if (priority != other.priority) {
+                return priority < other.priority ? -1 : 1;
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
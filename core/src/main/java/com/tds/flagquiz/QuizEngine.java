@@ -0,0 +1,243 @@
+package com.tds.flagquiz;
+
+/**
+ * State of one quiz session: which question is showing, whether it has been answered, and the
+ * running score. Framework-free so it can be unit-tested and benchmarked on a plain JVM;
+ * QuizActivity only renders it.
+ * <p>
+ * Answers are option slots, checked by flag id against the question's flag, so two flags that
+ * happen to share a display name cannot be confused. Answering and moving on only touch ints,
+ * so the tap path allocates nothing.
+ */
+public final class QuizEngine {
+
+    public enum State {
+        /** The current question is showing and has not been answered. */
+        ASKING,
+        /** The current question has been answered; waiting for the user to move on. */
+        ANSWERED,
+        /** Every question has been passed, or the quiz was submitted early. */
+        FINISHED
+    }
+
+    /** Returned by {@link #answer(int)} when the tap does not count (already answered, finished, or an empty slot). */
+    public static final int RESULT_IGNORED = 0;
+    public static final int RESULT_CORRECT = 1;
+    public static final int RESULT_WRONG = 2;
+
+    // Snapshot layout: version, question index, state, selected slot, the three scores, then the plan
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_HEADER = 7;
+
+    private final QuizSessionPlan plan;
+
+    private State state;
+    private int questionIndex;
+    private int selectedSlot = QuizSessionPlan.NO_OPTION;
+    private int correctCount;
+    private int wrongCount;
+    private int skippedCount;
+
+    public QuizEngine(QuizSessionPlan plan) {
+        this.plan = plan;
+        this.state = plan.size() > 0 ? State.ASKING : State.FINISHED;
+    }
+
+    /**
+     * Saves the whole session, plan included, as a flat int array small enough for an
+     * activity's saved instance state. {@link #restore(FlagCatalog, int[])} rebuilds it from
+     * the flag catalog alone, without touching the database.
+     */
+    public int[] saveState() {
+        int[] snapshot = new int[SNAPSHOT_HEADER + plan.flagIdsLength()];
+        snapshot[0] = SNAPSHOT_VERSION;
+        snapshot[1] = questionIndex;
+        snapshot[2] = state.ordinal();
+        snapshot[3] = selectedSlot;
+        snapshot[4] = correctCount;
+        snapshot[5] = wrongCount;
+        snapshot[6] = skippedCount;
+        plan.writeFlagIds(snapshot, SNAPSHOT_HEADER);
+        return snapshot;
+    }
+
+    /**
+     * Rebuilds a session saved by {@link #saveState()}.
+     *
+     * @return The session where it was left, or null if the snapshot is from another version,
+     * is malformed, names flags that {@code catalog} does not have, or holds a selected slot or
+     * scores that the session could not have reached.
+     */
+    public static QuizEngine restore(FlagCatalog catalog, int[] snapshot) {
+        if (snapshot == null || snapshot.length < SNAPSHOT_HEADER || snapshot[0] != SNAPSHOT_VERSION) {
+            return null;
+        }
+        QuizSessionPlan plan = QuizSessionPlan.readFlagIds(catalog, snapshot, SNAPSHOT_HEADER);
+        int stateOrdinal = snapshot[2];
+        if (plan == null || stateOrdinal < 0 || stateOrdinal >= State.values().length) {
+            return null;
+        }
+        State state = State.values()[stateOrdinal];
+        int questionIndex = snapshot[1];
+        // Past the last question only once finished; next() leaves it at plan.size()
+        int lastIndex = state == State.FINISHED ? plan.size() : plan.size() - 1;
+        if (questionIndex < 0 || questionIndex > lastIndex) {
+            return null;
+        }
+        int selectedSlot = snapshot[3];
+        if (selectedSlot != QuizSessionPlan.NO_OPTION && (selectedSlot < 0 || selectedSlot >= plan.getOptionsPerQuestion()
+                || questionIndex >= plan.size() || !plan.hasOption(questionIndex, selectedSlot))) {
+            return null;
+        }
+        // Each question up to the current one is counted at most once
+        int correctCount = snapshot[4];
+        int wrongCount = snapshot[5];
+        int skippedCount = snapshot[6];
+        if (correctCount < 0 || wrongCount < 0 || skippedCount < 0
+                || (long) correctCount + wrongCount + skippedCount > questionIndex + 1L) {
+            return null;
+        }
+
+        QuizEngine engine = new QuizEngine(plan);
+        engine.state = state;
+        engine.questionIndex = questionIndex;
+        engine.selectedSlot = state == State.ANSWERED ? selectedSlot : QuizSessionPlan.NO_OPTION;
+        engine.correctCount = correctCount;
+        engine.wrongCount = wrongCount;
+        engine.skippedCount = skippedCount;
+        return engine;
+    }
+
+    /**
+     * Answers the current question with the option in {@code slot}.
+     *
+     * @return {@link #RESULT_CORRECT}, {@link #RESULT_WRONG} or {@link #RESULT_IGNORED}.
+     */
+    public int answer(int slot) {
+        if (state != State.ASKING || slot < 0 || slot >= plan.getOptionsPerQuestion()
+                || !plan.hasOption(questionIndex, slot)) {
+            return RESULT_IGNORED;
+        }
+        selectedSlot = slot;
+        state = State.ANSWERED;
+        if (plan.getOptionFlagId(questionIndex, slot) == plan.getQuestionFlagId(questionIndex)) {
+            correctCount++;
+            return RESULT_CORRECT;
+        }
+        wrongCount++;
+        return RESULT_WRONG;
+    }
+
+    /**
+     * Answers the current question with a flag named rather than picked, as in typed-answer mode.
+     * The selected slot is the option showing that flag, or {@link QuizSessionPlan#NO_OPTION} if
+     * it is not one of the options.
+     *
+     * @param flagId The flag the answer names, or any id that is no flag (such as
+     *               {@link FlagNameMatcher#NO_MATCH}) for an answer that names none.
+     * @return {@link #RESULT_CORRECT}, {@link #RESULT_WRONG} or {@link #RESULT_IGNORED}.
+     */
+    public int answerFlag(int flagId) {
+        if (state != State.ASKING) {
+            return RESULT_IGNORED;
+        }
+        selectedSlot = QuizSessionPlan.NO_OPTION;
+        for (int slot = 0; slot < plan.getOptionsPerQuestion(); slot++) {
+            if (plan.hasOption(questionIndex, slot) && plan.getOptionFlagId(questionIndex, slot) == flagId) {
+                selectedSlot = slot;
+                break;
+            }
+        }
+        state = State.ANSWERED;
+        if (flagId == plan.getQuestionFlagId(questionIndex)) {
+            correctCount++;
+            return RESULT_CORRECT;
+        }
+        wrongCount++;
+        return RESULT_WRONG;
+    }
+
+    /**
+     * Moves to the next question, counting the current one as skipped if it was not answered.
+     *
+     * @return true if there is another question to show, false if the quiz is now finished.
+     */
+    public boolean next() {
+        if (state == State.FINISHED) {
+            return false;
+        }
+        if (state == State.ASKING) {
+            skippedCount++;
+        }
+        selectedSlot = QuizSessionPlan.NO_OPTION;
+        questionIndex++;
+        if (questionIndex >= plan.size()) {
+            state = State.FINISHED;
+            return false;
+        }
+        state = State.ASKING;
+        return true;
+    }
+
+    /**
+     * Ends the quiz early. Questions not reached are not counted in any score.
+     */
+    public void finish() {
+        state = State.FINISHED;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isFinished() {
+        return state == State.FINISHED;
+    }
+
+    public QuizSessionPlan getPlan() {
+        return plan;
+    }
+
+    public int getQuestionIndex() {
+        return questionIndex;
+    }
+
+    public int getQuestionCount() {
+        return plan.size();
+    }
+
+    public int getQuestionFlagId() {
+        return plan.getQuestionFlagId(questionIndex);
+    }
+
+    /**
+     * @return The slot picked for the current question, or {@link QuizSessionPlan#NO_OPTION} if not
+     * answered yet or answered with a flag that is not among the options.
+     */
+    public int getSelectedSlot() {
+        return selectedSlot;
+    }
+
+    public int getCorrectSlot() {
+        return plan.getCorrectSlot(questionIndex);
+    }
+
+    public int getCorrectCount() {
+        return correctCount;
+    }
+
+    public int getWrongCount() {
+        return wrongCount;
+    }
+
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * @return Questions answered or skipped so far; after an early submit, fewer than the plan holds.
+     */
+    public int getQuestionsPlayed() {
+        return correctCount + wrongCount + skippedCount;
+    }
+}
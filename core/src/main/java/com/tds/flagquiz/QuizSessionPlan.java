@@ -0,0 +1,203 @@
+package com.tds.flagquiz;
+
+import java.util.Random;
+
+/**
+ * Every question of one quiz session, picked up front: the flag to show, its distractors,
+ * and the already shuffled order of the options. Built once in the background so that
+ * moving to the next question is a plain index step.
+ */
+public final class QuizSessionPlan {
+
+    /** Option slot value for a question that has fewer options than the plan allows. */
+    public static final int NO_OPTION = -1;
+
+    private final FlagCatalog catalog;
+    private final int optionsPerQuestion;
+    private final int[] questionRows; // Catalog row of each question's flag
+    private final int[] optionRows;   // Catalog row per option, at question * optionsPerQuestion + slot
+    private final int[] correctSlots; // Slot holding the question's own flag
+
+    private QuizSessionPlan(FlagCatalog catalog, int optionsPerQuestion,
+                            int[] questionRows, int[] optionRows, int[] correctSlots) {
+        this.catalog = catalog;
+        this.optionsPerQuestion = optionsPerQuestion;
+        this.questionRows = questionRows;
+        this.optionRows = optionRows;
+        this.correctSlots = correctSlots;
+    }
+
+    public static QuizSessionPlan build(FlagCatalog catalog, int questionCount, int optionsPerQuestion) {
+        return build(catalog, questionCount, optionsPerQuestion, RandomDistractors.INSTANCE, new Random());
+    }
+
+    public static QuizSessionPlan build(FlagCatalog catalog, int questionCount, int optionsPerQuestion,
+                                        DistractorStrategy distractorStrategy) {
+        return build(catalog, questionCount, optionsPerQuestion, distractorStrategy, new Random());
+    }
+
+    public static QuizSessionPlan build(FlagCatalog catalog, int questionCount, int optionsPerQuestion, Random random) {
+        return build(catalog, questionCount, optionsPerQuestion, RandomDistractors.INSTANCE, random);
+    }
+
+    /**
+     * Draws {@code questionCount} distinct flags and, for each, {@code optionsPerQuestion - 1}
+     * distractors chosen by {@code distractorStrategy}, then places the correct answer in a random slot.
+     */
+    public static QuizSessionPlan build(FlagCatalog catalog, int questionCount, int optionsPerQuestion,
+                                        DistractorStrategy distractorStrategy, Random random) {
+        int[] sampled = new int[Math.min(questionCount, catalog.size())];
+        int questions = catalog.sampleIndices(null, 0, sampled.length, sampled);
+
+        int[] questionRows = new int[questions];
+        System.arraycopy(sampled, 0, questionRows, 0, questions);
+        int[] optionRows = new int[questions * optionsPerQuestion];
+        int[] correctSlots = new int[questions];
+
+        int[] distractors = new int[optionsPerQuestion - 1];
+        for (int q = 0; q < questions; q++) {
+            int found = distractorStrategy.pickDistractors(catalog, questionRows[q], distractors.length, distractors);
+
+            // Drop the correct answer into a random slot among the options we actually have
+            int correctSlot = random.nextInt(found + 1);
+            int base = q * optionsPerQuestion;
+            int next = 0;
+            for (int slot = 0; slot < optionsPerQuestion; slot++) {
+                if (slot == correctSlot) {
+                    optionRows[base + slot] = questionRows[q];
+                } else if (next < found) {
+                    optionRows[base + slot] = distractors[next++];
+                } else {
+                    optionRows[base + slot] = NO_OPTION;
+                }
+            }
+            correctSlots[q] = correctSlot;
+        }
+        return new QuizSessionPlan(catalog, optionsPerQuestion, questionRows, optionRows, correctSlots);
+    }
+
+    /**
+     * Writes the plan as flag ids, for saving across process death: the options per question,
+     * the question count, then for each question its flag id followed by its option ids
+     * ({@link #NO_OPTION} for empty slots). Ids rather than rows, so the snapshot does not
+     * depend on the catalog's row order.
+     *
+     * @return The next free position in {@code out}.
+     */
+    int writeFlagIds(int[] out, int offset) {
+        out[offset++] = optionsPerQuestion;
+        out[offset++] = questionRows.length;
+        for (int q = 0; q < questionRows.length; q++) {
+            out[offset++] = catalog.getId(questionRows[q]);
+            for (int slot = 0; slot < optionsPerQuestion; slot++) {
+                out[offset++] = getOptionFlagId(q, slot);
+            }
+        }
+        return offset;
+    }
+
+    /** Number of ints {@link #writeFlagIds(int[], int)} writes. */
+    int flagIdsLength() {
+        return 2 + questionRows.length * (1 + optionsPerQuestion);
+    }
+
+    /**
+     * Rebuilds a plan written by {@link #writeFlagIds(int[], int)} against {@code catalog}.
+     *
+     * @return The plan, or null if the snapshot is malformed or names a flag the catalog no longer has.
+     */
+    static QuizSessionPlan readFlagIds(FlagCatalog catalog, int[] in, int offset) {
+        if (in.length - offset < 2) {
+            return null;
+        }
+        int optionsPerQuestion = in[offset++];
+        int questions = in[offset++];
+        if (optionsPerQuestion <= 0 || questions < 0
+                || in.length - offset != questions * (1 + optionsPerQuestion)) {
+            return null;
+        }
+
+        int[] questionRows = new int[questions];
+        int[] optionRows = new int[questions * optionsPerQuestion];
+        int[] correctSlots = new int[questions];
+        for (int q = 0; q < questions; q++) {
+            int questionId = in[offset++];
+            questionRows[q] = catalog.indexOf(questionId);
+            if (questionRows[q] < 0) {
+                return null;
+            }
+            correctSlots[q] = NO_OPTION;
+            int base = q * optionsPerQuestion;
+            for (int slot = 0; slot < optionsPerQuestion; slot++) {
+                int optionId = in[offset++];
+                if (optionId == NO_OPTION) {
+                    optionRows[base + slot] = NO_OPTION;
+                    continue;
+                }
+                optionRows[base + slot] = catalog.indexOf(optionId);
+                if (optionRows[base + slot] < 0) {
+                    return null;
+                }
+                if (optionId == questionId) {
+                    correctSlots[q] = slot;
+                }
+            }
+            if (correctSlots[q] == NO_OPTION) {
+                return null; // The right answer must be among the options
+            }
+        }
+        return new QuizSessionPlan(catalog, optionsPerQuestion, questionRows, optionRows, correctSlots);
+    }
+
+    public int size() {
+        return questionRows.length;
+    }
+
+    public int getOptionsPerQuestion() {
+        return optionsPerQuestion;
+    }
+
+    public FlagCatalog getCatalog() {
+        return catalog;
+    }
+
+    public int getQuestionFlagId(int question) {
+        return catalog.getId(questionRows[question]);
+    }
+
+    public String getQuestionImage(int question) {
+        return catalog.getImage(questionRows[question]);
+    }
+
+    public String getQuestionName(int question) {
+        return catalog.getName(questionRows[question]);
+    }
+
+    public boolean hasOption(int question, int slot) {
+        return optionRows[question * optionsPerQuestion + slot] != NO_OPTION;
+    }
+
+    /**
+     * Returns the display name of the option in {@code slot}, or null if the slot is empty.
+     */
+    public String getOptionName(int question, int slot) {
+        int row = optionRows[question * optionsPerQuestion + slot];
+        return row != NO_OPTION ? catalog.getName(row) : null;
+    }
+
+    /**
+     * Returns the flag id of the option in {@code slot}, or {@link #NO_OPTION} if the slot is empty.
+     */
+    public int getOptionFlagId(int question, int slot) {
+        int row = optionRows[question * optionsPerQuestion + slot];
+        return row != NO_OPTION ? catalog.getId(row) : NO_OPTION;
+    }
+
+    public int getCorrectSlot(int question) {
+        return correctSlots[question];
+    }
+
+    public boolean isCorrect(int question, int slot) {
+        return correctSlots[question] == slot;
+    }
+}
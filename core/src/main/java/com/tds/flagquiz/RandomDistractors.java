@@ -0,0 +1,17 @@
+package com.tds.flagquiz;
+
+/**
+ * Distractors drawn uniformly at random from the whole catalog.
+ */
+public final class RandomDistractors implements DistractorStrategy {
+
+    public static final RandomDistractors INSTANCE = new RandomDistractors();
+
+    private RandomDistractors() {
+    }
+
+    @Override
+    public int pickDistractors(FlagCatalog catalog, int questionRow, int count, int[] out) {
+        return catalog.sampleIndices(new int[]{questionRow}, 1, count, out);
+    }
+}
@@ -0,0 +1,69 @@
+package com.tds.flagquiz;
+
+import java.util.Random;
+
+/**
+ * Distractors that look like the question's flag, taken from the precomputed
+ * {@link FlagSimilarityIndex}: a random few of its k nearest neighbours, so the same flag
+ * does not always come with the same options. Each pick is a handful of array reads.
+ * If a flag has fewer neighbours than needed, the rest are drawn at random.
+ */
+public final class SimilarDistractors implements DistractorStrategy {
+
+    private final FlagCatalog catalog;
+    private final int[] neighbourRows;
+    private final int neighboursPerFlag;
+    private final Random random;
+
+    // Scratch space for one pick, reused under the lock
+    private final int[] candidates;
+    private final int[] excluded;
+
+    public SimilarDistractors(FlagSimilarityIndex index, FlagCatalog catalog) {
+        this(index, catalog, new Random());
+    }
+
+    public SimilarDistractors(FlagSimilarityIndex index, FlagCatalog catalog, Random random) {
+        this.catalog = catalog;
+        this.neighbourRows = index.toCatalogRows(catalog);
+        this.neighboursPerFlag = index.getNeighboursPerFlag();
+        this.random = random;
+        this.candidates = new int[neighboursPerFlag];
+        this.excluded = new int[neighboursPerFlag + 1];
+    }
+
+    @Override
+    public synchronized int pickDistractors(FlagCatalog catalog, int questionRow, int count, int[] out) {
+        if (catalog != this.catalog) {
+            // Rows are only meaningful for the catalog the index was resolved against
+            return RandomDistractors.INSTANCE.pickDistractors(catalog, questionRow, count, out);
+        }
+
+        int available = 0;
+        int base = questionRow * neighboursPerFlag;
+        for (int n = 0; n < neighboursPerFlag && neighbourRows[base + n] >= 0; n++) {
+            candidates[available++] = neighbourRows[base + n];
+        }
+
+        // Partial Fisher-Yates over the neighbours
+        int found = Math.min(count, available);
+        for (int i = 0; i < found; i++) {
+            int j = i + random.nextInt(available - i);
+            int picked = candidates[j];
+            candidates[j] = candidates[i];
+            candidates[i] = picked;
+            out[i] = picked;
+        }
+        if (found == count) {
+            return found;
+        }
+
+        // Not enough neighbours: top up at random, avoiding the question and what we already have
+        excluded[0] = questionRow;
+        System.arraycopy(out, 0, excluded, 1, found);
+        int[] rest = new int[count - found];
+        int extra = catalog.sampleIndices(excluded, found + 1, rest.length, rest);
+        System.arraycopy(rest, 0, out, found, extra);
+        return found + extra;
+    }
+}
@@ -0,0 +1,200 @@
+package com.tds.flagquiz;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link BinaryFlagSource}, run on the JVM against catalogs laid out as the
+ * {@code compileFlagCatalog} Gradle task writes them.
+ */
+public class BinaryFlagSourceTest {
+
+    // Sorted by flag_id, as the task writes them; names deliberately not in id order
+    private static final int[] IDS = {3, 5, 8, 13, 21, 34};
+    private static final String[] NAMES = {"france", "albania", "\u00e5land", "chad", "albania", "brazil"};
+
+    // German names for every flag but 34, French ones for none
+    private static final String[] LOCALES = {"de", "fr"};
+    private static final String[][] LOCALIZED_NAMES = {
+            {"Frankreich", "Albanien", "\u00c5land", "Tschad", "Albanien", null},
+            {null, null, null, null, null, null},
+    };
+
+    private static ByteBuffer catalog(int[] ids, String[] names) {
+        return catalog(ids, names, new String[0], new String[0][]);
+    }
+
+    private static ByteBuffer catalog(int[] ids, String[] names, String[] locales, String[][] localizedNames) {
+        ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        ByteBuffer records = ByteBuffer.allocate(ids.length * BinaryFlagSource.RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < ids.length; i++) {
+            byte[] name = names[i].getBytes(StandardCharsets.UTF_8);
+            byte[] image = ("img_" + ids[i]).getBytes(StandardCharsets.UTF_8);
+            records.putInt(ids[i]);
+            records.putInt(pool.size());
+            pool.write(name, 0, name.length);
+            records.putInt(pool.size());
+            pool.write(image, 0, image.length);
+            records.putShort((short) name.length);
+            records.putShort((short) image.length);
+        }
+        ByteBuffer localeTable = ByteBuffer.allocate(locales.length * BinaryFlagSource.LOCALE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer nameTables = ByteBuffer.allocate(locales.length * ids.length * BinaryFlagSource.NAME_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for (int l = 0; l < locales.length; l++) {
+            byte[] tag = locales[l].getBytes(StandardCharsets.UTF_8);
+            localeTable.putInt(pool.size()).putInt(tag.length);
+            pool.write(tag, 0, tag.length);
+            for (int i = 0; i < ids.length; i++) {
+                byte[] name = localizedNames[l][i] != null ? localizedNames[l][i].getBytes(StandardCharsets.UTF_8) : new byte[0];
+                nameTables.putInt(pool.size()).putInt(name.length);
+                pool.write(name, 0, name.length);
+            }
+        }
+        byte[] strings = pool.toByteArray();
+        int localeTableOffset = BinaryFlagSource.HEADER_BYTES + records.capacity();
+        int poolOffset = localeTableOffset + localeTable.capacity() + nameTables.capacity();
+        ByteBuffer buffer = ByteBuffer.allocate(poolOffset + strings.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(BinaryFlagSource.MAGIC).putInt(BinaryFlagSource.FORMAT_VERSION)
+                .putInt(ids.length).putInt(poolOffset).putInt(locales.length).putInt(localeTableOffset);
+        buffer.put(records.array()).put(localeTable.array()).put(nameTables.array()).put(strings);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static BinaryFlagSource source() {
+        return new BinaryFlagSource(catalog(IDS, NAMES, LOCALES, LOCALIZED_NAMES));
+    }
+
+    @Test
+    public void loadsEveryRecord() {
+        BinaryFlagSource source = source();
+        assertEquals(IDS.length, source.size());
+        FlagCatalog loaded = source.loadCatalog();
+        assertEquals(IDS.length, loaded.size());
+        for (int i = 0; i < IDS.length; i++) {
+            int row = loaded.indexOf(IDS[i]);
+            assertEquals(NAMES[i], loaded.getName(row));
+            assertEquals("img_" + IDS[i], loaded.getImage(row));
+        }
+        assertEquals(2, source.indexOf(8));
+        assertEquals(-1, source.indexOf(9));
+    }
+
+    @Test
+    public void emptyCatalogLoadsAsNull() {
+        assertNull(new BinaryFlagSource(catalog(new int[0], new String[0])).loadCatalog());
+    }
+
+    @Test
+    public void localizedNamesLineUpWithCatalogRows() {
+        BinaryFlagSource source = source();
+        assertEquals(Arrays.asList(LOCALES), source.getNameLocales());
+        // Rows in another order than the records, with a flag the catalog does not have
+        FlagCatalog catalog = new FlagCatalog(new int[]{34, 99, 3, 8}, new String[]{"brazil", "x", "france", "\u00e5land"},
+                new String[]{"b", "x", "f", "a"});
+        String[] german = source.loadLocalizedNames("de", catalog);
+        assertArrayEquals(new String[]{null, null, "Frankreich", "\u00c5land"}, german);
+        assertArrayEquals(new String[4], source.loadLocalizedNames("fr", catalog));
+        assertNull(source.loadLocalizedNames("es", catalog));
+        assertNull(new BinaryFlagSource(catalog(IDS, NAMES)).loadLocalizedNames("de", catalog));
+    }
+
+    @Test
+    public void randomQuestionsAreDistinct() {
+        BinaryFlagSource source = source();
+        for (int round = 0; round < 50; round++) {
+            List<FlagsModel> questions = source.getRandomQuestions(5);
+            assertEquals(5, questions.size());
+            Set<Integer> ids = new HashSet<>();
+            for (FlagsModel question : questions) {
+                assertTrue(ids.add(question.getFlag_id()));
+            }
+        }
+        // Asking for more than there are redraws until every record is taken once, then stops
+        assertEquals(IDS.length, source.getRandomQuestions(IDS.length + 4).size());
+    }
+
+    @Test
+    public void randomOptionsSkipTheExcludedFlag() {
+        BinaryFlagSource source = source();
+        for (int round = 0; round < 50; round++) {
+            List<FlagsModel> options = source.getRandomOptions(13, 4);
+            assertEquals(4, options.size());
+            Set<Integer> ids = new HashSet<>();
+            for (FlagsModel option : options) {
+                assertNotEquals(13, option.getFlag_id());
+                assertTrue(ids.add(option.getFlag_id()));
+            }
+        }
+        assertEquals(IDS.length - 1, source.getRandomOptions(13, IDS.length).size());
+        assertEquals(IDS.length, source.getRandomOptions(99, IDS.length).size());
+    }
+
+    @Test
+    public void pagesWalkNameThenIdOrder() {
+        BinaryFlagSource source = source();
+        List<Integer> walked = new ArrayList<>();
+        List<FlagsModel> page = source.getPageByName(null, 0, 4);
+        assertEquals(4, page.size());
+        while (!page.isEmpty()) {
+            for (FlagsModel flag : page) {
+                walked.add(flag.getFlag_id());
+            }
+            FlagsModel last = page.get(page.size() - 1);
+            page = source.getPageByName(last.getFlag_name(), last.getFlag_id(), 4);
+        }
+        // The two albanias in flag_id order, and the non-ASCII name after the ASCII ones, as String order has it
+        List<Integer> expected = new ArrayList<>();
+        for (int id : new int[]{5, 21, 34, 13, 3, 8}) {
+            expected.add(id);
+        }
+        assertEquals(expected, walked);
+    }
+
+    @Test
+    public void pageAfterATieStartsAtTheNextId() {
+        List<FlagsModel> page = source().getPageByName("albania", 5, 2);
+        assertEquals(21, page.get(0).getFlag_id());
+        assertEquals(34, page.get(1).getFlag_id());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBadMagic() {
+        ByteBuffer buffer = catalog(IDS, NAMES);
+        buffer.putInt(0, 0x12345678);
+        new BinaryFlagSource(buffer);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOtherVersions() {
+        ByteBuffer buffer = catalog(IDS, NAMES);
+        buffer.putInt(4, BinaryFlagSource.FORMAT_VERSION + 1);
+        new BinaryFlagSource(buffer);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsATruncatedRecordTable() {
+        ByteBuffer buffer = catalog(IDS, NAMES);
+        buffer.putInt(8, IDS.length + 100);
+        new BinaryFlagSource(buffer);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsALocaleCountTheNameTablesDoNotHold() {
+        ByteBuffer buffer = catalog(IDS, NAMES, LOCALES, LOCALIZED_NAMES);
+        buffer.putInt(16, LOCALES.length + 1);
+        new BinaryFlagSource(buffer);
+    }
+}
@@ -0,0 +1,84 @@
+package com.tds.flagquiz;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ContentPack}, run on the JVM.
+ */
+public class ContentPackTest {
+
+    @Test
+    public void globalIdsKeepBundledIdsAndSplitBack() {
+        assertEquals(248, ContentPack.globalId(ContentPack.BUNDLED_PACK_ID, 248));
+
+        int flagId = ContentPack.globalId(3, 1234);
+        assertEquals(3, ContentPack.packOf(flagId));
+        assertEquals(1234, ContentPack.localIdOf(flagId));
+
+        int last = ContentPack.globalId(ContentPack.MAX_PACK_ID, ContentPack.MAX_LOCAL_ID);
+        assertTrue(last > 0);
+        assertEquals(ContentPack.MAX_PACK_ID, ContentPack.packOf(last));
+    }
+
+    @Test
+    public void readsManifestSkippingComments() throws IOException {
+        List<ContentPack> packs = ContentPack.readManifest(new StringReader(
+                "# id\tname\tversion\ttitle\n\n1\tsubdivisions\t2\tStates and provinces\n7\tmaritime\t1\tSignal flags\n"));
+
+        assertEquals(2, packs.size());
+        assertEquals(1, packs.get(0).getId());
+        assertEquals("packs/subdivisions.db", packs.get(0).getDatabaseAssetName());
+        assertEquals("pack_subdivisions.db", packs.get(0).getInstalledDatabaseName());
+        assertEquals(2, packs.get(0).getVersion());
+        assertEquals("Signal flags", packs.get(1).getTitle());
+        assertEquals("packs/maritime/", packs.get(1).getAtlasDirectory());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsDuplicatePackIds() throws IOException {
+        ContentPack.readManifest(new StringReader("1\ta\t1\tA\n1\tb\t1\tB\n"));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTheBundledPackId() throws IOException {
+        ContentPack.readManifest(new StringReader("0\ta\t1\tA\n"));
+    }
+
+    @Test
+    public void mergedCatalogFindsFlagsOfEveryPart() {
+        FlagCatalog bundled = new FlagCatalog(new int[]{1, 2}, new String[]{"a", "b"}, new String[]{"a", "b"});
+        int packFlag = ContentPack.globalId(1, 1);
+        FlagCatalog pack = new FlagCatalog(new int[]{packFlag}, new String[]{"c"}, new String[]{"c"});
+
+        FlagCatalog merged = FlagCatalog.merge(Arrays.asList(bundled, pack));
+        assertEquals(3, merged.size());
+        assertEquals("c", merged.getName(merged.indexOf(packFlag)));
+        assertEquals("a", merged.getName(merged.indexOf(1)));
+    }
+
+    @Test
+    public void findsFlagIdsOutsideThePack() {
+        ContentPack pack = new ContentPack(3, "subdivisions", 1, "States");
+        int base = ContentPack.globalId(3, 0);
+        // As FlagsDAO makes them: the pack's base plus the stored flag_id
+        assertEquals(-1, pack.findForeignRow(catalog(base + 1, base + ContentPack.MAX_LOCAL_ID)));
+        assertEquals(1, pack.findForeignRow(catalog(base + 1, base + ContentPack.MAX_LOCAL_ID + 1)));
+        assertEquals(1, pack.findForeignRow(catalog(base + 1, base)));
+        assertEquals(0, pack.findForeignRow(catalog(base - 1, base + 2)));
+        assertEquals(0, pack.findForeignRow(catalog(7, base + 2)));
+        assertEquals(0, pack.findForeignRow(catalog(ContentPack.globalId(2, 5), base + 2)));
+    }
+
+    private static FlagCatalog catalog(int... ids) {
+        String[] names = new String[ids.length];
+        Arrays.fill(names, "x");
+        return new FlagCatalog(ids, names, names.clone());
+    }
+}
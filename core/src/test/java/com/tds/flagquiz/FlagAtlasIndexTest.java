@@ -0,0 +1,68 @@
+package com.tds.flagquiz;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FlagAtlasIndex}, run on the JVM.
+ */
+public class FlagAtlasIndexTest {
+
+    // Records of flag_id, offset, length, width, height, followed by imageBytes bytes of images
+    private static ByteBuffer atlas(int imageBytes, int[]... records) {
+        ByteBuffer buffer = ByteBuffer.allocate(12 + records.length * 20 + imageBytes).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(FlagAtlasIndex.MAGIC).putInt(FlagAtlasIndex.FORMAT_VERSION).putInt(records.length);
+        for (int[] record : records) {
+            for (int value : record) {
+                buffer.putInt(value);
+            }
+        }
+        buffer.position(0);
+        return buffer;
+    }
+
+    @Test
+    public void findsImagesByFlagId() {
+        FlagAtlasIndex index = FlagAtlasIndex.read(atlas(300,
+                new int[]{3, 52, 100, 360, 240},
+                new int[]{8, 152, 200, 480, 240}));
+
+        assertEquals(2, index.size());
+        int record = index.find(8);
+        assertEquals(152, index.getOffset(record));
+        assertEquals(200, index.getLength(record));
+        assertEquals(480, index.getWidth(record));
+        assertEquals(240, index.getHeight(record));
+        assertEquals(0, index.find(3));
+        assertEquals(-1, index.find(5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsImagePastTheEnd() {
+        FlagAtlasIndex.read(atlas(100, new int[]{3, 32, 101, 360, 240}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsImageInsideTheRecords() {
+        FlagAtlasIndex.read(atlas(100, new int[]{3, 20, 10, 360, 240}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyImage() {
+        FlagAtlasIndex.read(atlas(100, new int[]{3, 32, 0, 360, 240}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnsortedRecords() {
+        FlagAtlasIndex.read(atlas(20, new int[]{8, 52, 10, 10, 10}, new int[]{3, 62, 10, 10, 10}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOtherFiles() {
+        FlagAtlasIndex.read(ByteBuffer.wrap(new byte[16]));
+    }
+}
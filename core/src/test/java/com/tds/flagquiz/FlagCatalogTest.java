@@ -0,0 +1,96 @@
+package com.tds.flagquiz;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the partial Fisher-Yates draws of {@link FlagCatalog}, run on the JVM.
+ */
+public class FlagCatalogTest {
+
+    private FlagCatalog catalog;
+
+    @Before
+    public void setUp() {
+        int[] ids = {10, 20, 30, 40, 50, 60, 70, 80};
+        String[] names = {"a", "b", "c", "d", "e", "f", "g", "h"};
+        catalog = new FlagCatalog(ids, names, names.clone(), new Random(1));
+    }
+
+    @Test
+    public void drawsHaveNoDuplicates() {
+        int[] out = new int[5];
+        for (int round = 0; round < 50; round++) {
+            assertEquals(5, catalog.sampleIndices(null, 0, 5, out));
+            Set<Integer> rows = new HashSet<>();
+            for (int row : out) {
+                assertTrue(row >= 0 && row < catalog.size());
+                assertTrue("Row " + row + " drawn twice", rows.add(row));
+            }
+        }
+    }
+
+    @Test
+    public void excludedRowsAreNeverDrawn() {
+        // A duplicate and an unknown row in the exclusion set are ignored
+        int[] excluded = {2, 5, 2, 99};
+        int[] out = new int[6];
+        for (int round = 0; round < 50; round++) {
+            assertEquals(6, catalog.sampleIndices(excluded, excluded.length, 6, out));
+            for (int row : out) {
+                assertTrue(row != 2 && row != 5);
+            }
+        }
+    }
+
+    @Test
+    public void excludedFlagIsNeverAnOption() {
+        for (int round = 0; round < 50; round++) {
+            List<FlagsModel> options = catalog.sampleOptions(30, 7);
+            assertEquals(7, options.size());
+            Set<Integer> ids = new HashSet<>();
+            for (FlagsModel option : options) {
+                assertNotEquals(30, option.getFlag_id());
+                assertTrue(ids.add(option.getFlag_id()));
+            }
+        }
+    }
+
+    @Test
+    public void countEqualToSizeDrawsEveryRowOnce() {
+        int[] out = new int[catalog.size()];
+        assertEquals(catalog.size(), catalog.sampleIndices(null, 0, out.length, out));
+        boolean[] seen = new boolean[catalog.size()];
+        for (int row : out) {
+            assertFalse(seen[row]);
+            seen[row] = true;
+        }
+        assertEquals(catalog.size(), catalog.sampleQuestions(catalog.size()).size());
+    }
+
+    @Test
+    public void countBeyondSizeStopsAtTheCatalog() {
+        int[] out = new int[catalog.size() + 3];
+        assertEquals(catalog.size(), catalog.sampleIndices(null, 0, out.length, out));
+        assertEquals(catalog.size() - 1, catalog.sampleIndices(new int[]{0}, 1, out.length, out));
+        assertEquals(catalog.size(), catalog.sampleQuestions(catalog.size() + 3).size());
+        assertEquals(catalog.size() - 1, catalog.sampleOptions(10, catalog.size()).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void countBeyondTheOutputIsRejected() {
+        catalog.sampleIndices(null, 0, 4, new int[3]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeCountIsRejected() {
+        catalog.sampleIndices(null, 0, -1, new int[3]);
+    }
+}
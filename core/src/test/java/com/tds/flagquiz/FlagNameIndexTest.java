@@ -0,0 +1,80 @@
+package com.tds.flagquiz;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FlagNameIndex}, run on the JVM.
+ */
+public class FlagNameIndexTest {
+
+    private FlagCatalog catalog;
+    private FlagNameIndex index;
+    private int[] out;
+
+    @Before
+    public void setUp() {
+        int[] ids = {5, 2, 9, 4, 7};
+        String[] names = {"iceland", "aland islands", "Ireland", "guinea-bissau", "papua new guinea"};
+        catalog = new FlagCatalog(ids, names, names.clone());
+        index = FlagNameIndex.build(catalog);
+        out = new int[index.size()];
+    }
+
+    private String[] search(String prefix) {
+        int found = index.search(prefix, out);
+        String[] names = new String[found];
+        for (int i = 0; i < found; i++) {
+            names[i] = catalog.getName(out[i]);
+        }
+        return names;
+    }
+
+    @Test
+    public void matchesAnyWordInNameOrder() {
+        assertEquals(Arrays.asList("Ireland", "aland islands", "iceland"), Arrays.asList(search("I")));
+        assertEquals(Arrays.asList("aland islands"), Arrays.asList(search("isl")));
+        assertEquals(Arrays.asList("guinea-bissau", "papua new guinea"), Arrays.asList(search("guin")));
+        assertEquals(Arrays.asList("guinea-bissau"), Arrays.asList(search("biss")));
+    }
+
+    @Test
+    public void prefixMaySpanWords() {
+        assertEquals(Arrays.asList("aland islands"), Arrays.asList(search("aland is")));
+        assertEquals(0, search("aland x").length);
+    }
+
+    @Test
+    public void blankPrefixListsEverythingInNameOrder() {
+        assertEquals(Arrays.asList("Ireland", "aland islands", "guinea-bissau", "iceland", "papua new guinea"),
+                Arrays.asList(search("  ")));
+    }
+
+    @Test
+    public void localizedNamesFollowCollationAndFoldAccents() {
+        // Egypt, Oman, Austria, Cyprus in German; String order would put the umlauts last
+        catalog = new FlagCatalog(new int[]{1, 2, 3, 4}, new String[]{"egypt", "oman", "austria", "cyprus"},
+                new String[4]).withLocalizedNames(new String[]{"\u00c4gypten", "Oman", "\u00d6sterreich", null},
+                Collator.getInstance(Locale.GERMAN));
+        index = FlagNameIndex.build(catalog);
+        out = new int[index.size()];
+
+        assertTrue(catalog.isLocalized());
+        assertEquals(Arrays.asList("\u00c4gypten", "cyprus", "Oman", "\u00d6sterreich"), Arrays.asList(search("")));
+        assertEquals(Arrays.asList("Oman", "\u00d6sterreich"), Arrays.asList(search("o")));
+        assertEquals(2, index.rankOf(catalog.indexOf(2)));
+        assertEquals(catalog.indexOf(3), index.rowAtRank(3));
+    }
+
+    @Test
+    public void repeatedSearchesDoNotLeakMatches() {
+        search("guin");
+        assertEquals(Arrays.asList("iceland"), Arrays.asList(search("ice")));
+    }
+}
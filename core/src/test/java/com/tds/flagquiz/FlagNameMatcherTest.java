@@ -0,0 +1,59 @@
+package com.tds.flagquiz;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FlagNameMatcher}, run on the JVM.
+ */
+public class FlagNameMatcherTest {
+
+    private FlagNameMatcher matcher;
+
+    @Before
+    public void setUp() {
+        int[] ids = {1, 2, 3, 4, 5, 6, 7, 8};
+        String[] names = {"germany", "guernsey", "armenia", "romania", "oman", "cote d'ivoire",
+                "republic of the congo", "Republic of the Congo"};
+        matcher = FlagNameMatcher.build(new FlagCatalog(ids, names, names.clone()));
+    }
+
+    @Test
+    public void foldsCaseAccentsAndPunctuation() {
+        assertEquals("cote divoire", FlagNameMatcher.fold("  C\u00f4te d'Ivoire! "));
+        assertEquals("bosnia herzegovina", FlagNameMatcher.fold("Bosnia-Herzegovina"));
+        assertEquals("", FlagNameMatcher.fold(null));
+    }
+
+    @Test
+    public void toleratesTyposInLongerNames() {
+        assertEquals(1, matcher.match("Germny", 1));
+        assertEquals(1, matcher.match("grmany", 2)); // Closest wins whatever was expected
+        assertEquals(3, matcher.match("armnia", 3));
+        assertEquals(6, matcher.match("Cote D'Ivoir", 6));
+    }
+
+    @Test
+    public void shortNamesMustBeExact() {
+        assertEquals(5, matcher.match("oman", 5));
+        assertEquals(FlagNameMatcher.NO_MATCH, matcher.match("omn", 5));
+        assertEquals(FlagNameMatcher.NO_MATCH, matcher.match("   ", 5));
+        assertEquals(FlagNameMatcher.NO_MATCH, matcher.match("atlantis", 1));
+    }
+
+    @Test
+    public void sameNameCountsAsTheExpectedFlag() {
+        assertEquals(8, matcher.match("republic of the congo", 8));
+        assertEquals(7, matcher.match("republic of the congo", 7));
+    }
+
+    @Test
+    public void findsEveryNameThroughTheTree() {
+        String[] typed = {"germanyy", "guernsy", "armenia", "romaina", "oman", "cote divoire"};
+        for (int i = 0; i < typed.length; i++) {
+            assertEquals(typed[i], i + 1, matcher.match(typed[i], -1));
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.tds.flagquiz;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FlagStatsBuffer}, run on the JVM.
+ */
+public class FlagStatsBufferTest {
+
+    @Test
+    public void drainReturnsOutcomesInOrderAndEmpties() {
+        FlagStatsBuffer buffer = new FlagStatsBuffer();
+        buffer.record(7, FlagStatsBuffer.OUTCOME_CORRECT, 100);
+        buffer.record(3, FlagStatsBuffer.OUTCOME_SKIPPED, 200);
+
+        FlagStatsBuffer.Batch batch = buffer.drain();
+
+        assertArrayEquals(new int[]{7, 3}, batch.flagIds);
+        assertEquals(FlagStatsBuffer.OUTCOME_SKIPPED, batch.outcomes[1]);
+        assertEquals(200, batch.timesMillis[1]);
+        assertEquals(0, buffer.size());
+        assertNull(buffer.drain());
+    }
+
+    @Test
+    public void growsPastInitialCapacity() {
+        FlagStatsBuffer buffer = new FlagStatsBuffer();
+        for (int i = 0; i < 100; i++) {
+            buffer.record(i, FlagStatsBuffer.OUTCOME_WRONG, i);
+        }
+        FlagStatsBuffer.Batch batch = buffer.drain();
+        assertEquals(100, batch.size());
+        assertEquals(99, batch.flagIds[99]);
+    }
+}
@@ -0,0 +1,84 @@
+package com.tds.flagquiz;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link LatencyHistogram}, run on the JVM.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsAreExactThenWithinAnEighth() {
+        assertEquals(0, LatencyHistogram.bucketOf(0));
+        assertEquals(15, LatencyHistogram.bucketOf(15));
+        assertEquals(16, LatencyHistogram.bucketOf(16));
+        assertEquals(16, LatencyHistogram.bucketOf(17));
+        assertEquals(17, LatencyHistogram.bucketOf(18));
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+
+        for (long micros = 16; micros < 40_000_000; micros = micros * 5 / 4 + 1) {
+            int bucket = LatencyHistogram.bucketOf(micros);
+            long upper = LatencyHistogram.bucketUpperBoundMicros(bucket);
+            assertTrue(micros + " above its bucket", micros <= upper);
+            if (bucket > 0 && bucket < LatencyHistogram.BUCKETS - 1) {
+                assertTrue(micros + " below its bucket", micros > LatencyHistogram.bucketUpperBoundMicros(bucket - 1));
+                assertTrue(micros + " bucket too wide", upper - micros <= micros / 8 + 1);
+            }
+        }
+    }
+
+    @Test
+    public void tellsAdjacentFrameTimesApart() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.recordNanos(16_700_000); // One frame at 60 Hz
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.recordNanos(33_400_000); // A dropped frame
+        }
+
+        assertEquals(100, histogram.getCount());
+        long p50 = histogram.getQuantileMicros(0.50);
+        long p95 = histogram.getQuantileMicros(0.95);
+        assertTrue(p50 >= 16_700 && p50 < 18_500);
+        assertTrue(p95 >= 33_400 && p95 < 37_000);
+        assertEquals(33_400, histogram.getQuantileMicros(1.0));
+    }
+
+    @Test
+    public void survivesWriteAndReadAndMerges() throws IOException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordMicros(12);
+        histogram.recordMicros(20_000);
+        histogram.recordMicros(250_000);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        histogram.writeTo(new DataOutputStream(bytes));
+        LatencyHistogram read = LatencyHistogram.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(3, read.getCount());
+        assertEquals(250_000, read.getMaxMicros());
+        assertEquals(histogram.getQuantileMicros(0.5), read.getQuantileMicros(0.5));
+
+        read.merge(histogram);
+        assertEquals(6, read.getCount());
+        assertEquals(12, read.getQuantileMicros(0.2));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFormats() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(99);
+        out.writeInt(LatencyHistogram.BUCKETS);
+        LatencyHistogram.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+}
@@ -0,0 +1,63 @@
+package com.tds.flagquiz;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link MetricsRegistry}, run on the JVM.
+ */
+public class MetricsRegistryTest {
+
+    @Test
+    public void bucketsArePowersOfTwoFromOneMicrosecond() {
+        assertEquals(0, MetricsRegistry.Histogram.bucketOf(0));
+        assertEquals(0, MetricsRegistry.Histogram.bucketOf(1024));
+        assertEquals(1, MetricsRegistry.Histogram.bucketOf(1025));
+        assertEquals(1, MetricsRegistry.Histogram.bucketOf(2048));
+        assertEquals(2, MetricsRegistry.Histogram.bucketOf(2049));
+        assertEquals(MetricsRegistry.Histogram.BUCKETS - 1, MetricsRegistry.Histogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void quantilesAreBucketUpperBoundsCappedAtMax() {
+        MetricsRegistry.Histogram histogram = new MetricsRegistry().histogram("query");
+        for (int i = 0; i < 99; i++) {
+            histogram.recordNanos(1_500); // Bucket up to 2048 ns
+        }
+        histogram.recordNanos(3_000_000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(2048, histogram.getQuantileNanos(0.5));
+        assertEquals(2048, histogram.getQuantileNanos(0.99));
+        assertEquals(3_000_000, histogram.getQuantileNanos(1.0));
+        assertEquals(3_000_000, histogram.getMaxNanos());
+        assertEquals((99 * 1_500 + 3_000_000) / 100, histogram.getMeanNanos());
+    }
+
+    @Test
+    public void resetKeepsMetricIdentity() {
+        MetricsRegistry registry = new MetricsRegistry();
+        MetricsRegistry.Counter counter = registry.counter("hits");
+        counter.increment();
+        registry.histogram("decode").recordNanos(5_000);
+
+        registry.reset();
+
+        assertSame(counter, registry.counter("hits"));
+        assertEquals(0, counter.get());
+        assertEquals(0, registry.histogram("decode").getCount());
+    }
+
+    @Test
+    public void jsonListsEveryMetric() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("image_cache_hit").add(3);
+        registry.histogram("db_open").recordNanos(2_000_000);
+
+        String json = registry.toJson();
+
+        assertTrue(json.contains("\"image_cache_hit\": 3"));
+        assertTrue(json.contains("\"db_open\": {\"count\": 1, \"mean_us\": 2000"));
+    }
+}
@@ -0,0 +1,75 @@
+package com.tds.flagquiz;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link PriorityExecutor} and {@link Generation}, run on the JVM.
+ */
+public class PriorityExecutorTest {
+
+    @Test
+    public void interactiveWorkRunsAheadOfPrefetch() throws InterruptedException {
+        PriorityExecutor executor = new PriorityExecutor("test", 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(4);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        // Hold the only thread so the rest queue up
+        executor.execute(PriorityExecutor.PRIORITY_INTERACTIVE, () -> awaitQuietly(release));
+        executor.execute(PriorityExecutor.PRIORITY_PREFETCH, record(order, "prefetch 1", done));
+        executor.execute(PriorityExecutor.PRIORITY_NORMAL, record(order, "normal", done));
+        executor.execute(PriorityExecutor.PRIORITY_PREFETCH, record(order, "prefetch 2", done));
+        executor.execute(PriorityExecutor.PRIORITY_INTERACTIVE, record(order, "interactive", done));
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("interactive", "normal", "prefetch 1", "prefetch 2"), order);
+    }
+
+    @Test
+    public void staleGenerationIsDroppedBeforeRunning() throws InterruptedException {
+        PriorityExecutor executor = new PriorityExecutor("test", 1);
+        Generation generation = new Generation();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        executor.execute(PriorityExecutor.PRIORITY_INTERACTIVE, () -> awaitQuietly(release));
+        int first = generation.advance();
+        executor.execute(PriorityExecutor.PRIORITY_INTERACTIVE, generation, first, record(order, "question 1", null));
+        int second = generation.advance();
+        executor.execute(PriorityExecutor.PRIORITY_INTERACTIVE, generation, second, record(order, "question 2", done));
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("question 2"), order);
+        assertEquals(1, executor.getDroppedCount());
+        assertFalse(generation.isCurrent(first));
+        assertTrue(generation.isCurrent(second));
+    }
+
+    private static Runnable record(List<String> order, String name, CountDownLatch done) {
+        return () -> {
+            order.add(name);
+            if (done != null) {
+                done.countDown();
+            }
+        };
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.tds.flagquiz;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link QuizEngine}, run on the JVM.
+ */
+public class QuizEngineTest {
+
+    private FlagCatalog catalog;
+    private QuizSessionPlan plan;
+    private QuizEngine engine;
+
+    @Before
+    public void setUp() {
+        // Every flag shares one display name, so only the id can tell the right answer apart
+        int[] ids = {1, 2, 3, 4, 5, 6, 7, 8};
+        String[] names = new String[ids.length];
+        String[] images = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            names[i] = "congo";
+            images[i] = "flag_" + ids[i];
+        }
+        catalog = new FlagCatalog(ids, names, images, new Random(42));
+        plan = QuizSessionPlan.build(catalog, 3, 4, new Random(7));
+        engine = new QuizEngine(plan);
+    }
+
+    @Test
+    public void answerIsCheckedByFlagId() {
+        int correctSlot = engine.getCorrectSlot();
+        int wrongSlot = (correctSlot + 1) % 4;
+        assertEquals(plan.getOptionName(0, correctSlot), plan.getOptionName(0, wrongSlot));
+
+        assertEquals(QuizEngine.RESULT_WRONG, engine.answer(wrongSlot));
+        assertEquals(QuizEngine.State.ANSWERED, engine.getState());
+        assertEquals(wrongSlot, engine.getSelectedSlot());
+        assertEquals(1, engine.getWrongCount());
+        assertEquals(0, engine.getCorrectCount());
+    }
+
+    @Test
+    public void secondAnswerIsIgnored() {
+        assertEquals(QuizEngine.RESULT_CORRECT, engine.answer(engine.getCorrectSlot()));
+        assertEquals(QuizEngine.RESULT_IGNORED, engine.answer((engine.getCorrectSlot() + 1) % 4));
+        assertEquals(1, engine.getCorrectCount());
+        assertEquals(0, engine.getWrongCount());
+    }
+
+    @Test
+    public void outOfRangeSlotIsIgnored() {
+        assertEquals(QuizEngine.RESULT_IGNORED, engine.answer(-1));
+        assertEquals(QuizEngine.RESULT_IGNORED, engine.answer(4));
+        assertEquals(QuizEngine.State.ASKING, engine.getState());
+    }
+
+    @Test
+    public void typedAnswerIsCheckedByFlagId() {
+        assertEquals(QuizEngine.RESULT_CORRECT, engine.answerFlag(engine.getQuestionFlagId()));
+        assertEquals(engine.getCorrectSlot(), engine.getSelectedSlot());
+        assertEquals(QuizEngine.RESULT_IGNORED, engine.answerFlag(engine.getQuestionFlagId()));
+
+        assertTrue(engine.next());
+        assertEquals(QuizEngine.RESULT_WRONG, engine.answerFlag(FlagNameMatcher.NO_MATCH));
+        assertEquals(QuizSessionPlan.NO_OPTION, engine.getSelectedSlot());
+        assertEquals(1, engine.getCorrectCount());
+        assertEquals(1, engine.getWrongCount());
+    }
+
+    @Test
+    public void unansweredQuestionCountsAsSkipped() {
+        assertTrue(engine.next());
+        assertEquals(1, engine.getQuestionIndex());
+        assertEquals(1, engine.getSkippedCount());
+
+        engine.answer(engine.getCorrectSlot());
+        assertTrue(engine.next());
+        assertEquals(1, engine.getSkippedCount());
+        assertEquals(QuizSessionPlan.NO_OPTION, engine.getSelectedSlot());
+    }
+
+    @Test
+    public void finishesAfterLastQuestion() {
+        assertTrue(engine.next());
+        assertTrue(engine.next());
+        assertFalse(engine.next());
+        assertTrue(engine.isFinished());
+        assertEquals(3, engine.getSkippedCount());
+        assertFalse(engine.next());
+        assertEquals(QuizEngine.RESULT_IGNORED, engine.answer(0));
+    }
+
+    @Test
+    public void finishingEarlyStopsScoring() {
+        engine.answer(engine.getCorrectSlot());
+        engine.finish();
+        assertTrue(engine.isFinished());
+        assertEquals(1, engine.getCorrectCount());
+        assertEquals(0, engine.getSkippedCount());
+    }
+
+    @Test
+    public void emptyPlanStartsFinished() {
+        FlagCatalog empty = new FlagCatalog(new int[0], new String[0], new String[0]);
+        assertTrue(new QuizEngine(QuizSessionPlan.build(empty, 10, 4)).isFinished());
+    }
+
+    @Test
+    public void snapshotRestoresSessionWhereItWasLeft() {
+        engine.answer((engine.getCorrectSlot() + 1) % 4);
+        assertTrue(engine.next());
+        engine.answer(engine.getCorrectSlot());
+
+        QuizEngine restored = QuizEngine.restore(catalog, engine.saveState());
+        assertNotNull(restored);
+        assertEquals(QuizEngine.State.ANSWERED, restored.getState());
+        assertEquals(1, restored.getQuestionIndex());
+        assertEquals(engine.getSelectedSlot(), restored.getSelectedSlot());
+        assertEquals(1, restored.getCorrectCount());
+        assertEquals(1, restored.getWrongCount());
+        for (int q = 0; q < plan.size(); q++) {
+            assertEquals(plan.getQuestionFlagId(q), restored.getPlan().getQuestionFlagId(q));
+            assertEquals(plan.getCorrectSlot(q), restored.getPlan().getCorrectSlot(q));
+            for (int slot = 0; slot < 4; slot++) {
+                assertEquals(plan.getOptionFlagId(q, slot), restored.getPlan().getOptionFlagId(q, slot));
+            }
+        }
+
+        // Carries on exactly like the original
+        assertTrue(restored.next());
+        assertTrue(engine.next());
+        assertEquals(engine.getQuestionFlagId(), restored.getQuestionFlagId());
+    }
+
+    @Test
+    public void snapshotWithUnknownFlagIsRejected() {
+        int[] snapshot = engine.saveState();
+        FlagCatalog other = new FlagCatalog(new int[]{100, 101, 102, 103},
+                new String[]{"a", "b", "c", "d"}, new String[]{"a", "b", "c", "d"});
+        assertNull(QuizEngine.restore(other, snapshot));
+
+        snapshot[0] = 99; // Unknown version
+        assertNull(QuizEngine.restore(catalog, snapshot));
+        assertNull(QuizEngine.restore(catalog, new int[]{1, 0}));
+    }
+
+    @Test
+    public void snapshotWithImpossibleSlotIsRejected() {
+        engine.answer(engine.getCorrectSlot());
+        int[] snapshot = engine.saveState();
+        for (int slot : new int[]{-2, 4, Integer.MAX_VALUE}) {
+            snapshot[3] = slot;
+            assertNull("slot " + slot, QuizEngine.restore(catalog, snapshot));
+        }
+
+        // Fewer flags than options: the last slot of every question is empty
+        FlagCatalog small = new FlagCatalog(new int[]{1, 2, 3}, new String[]{"a", "b", "c"},
+                new String[]{"a", "b", "c"}, new Random(42));
+        QuizEngine smallEngine = new QuizEngine(QuizSessionPlan.build(small, 2, 4, new Random(7)));
+        assertFalse(smallEngine.getPlan().hasOption(0, 3));
+        smallEngine.answer(smallEngine.getCorrectSlot());
+        int[] smallSnapshot = smallEngine.saveState();
+        smallSnapshot[3] = 3;
+        assertNull(QuizEngine.restore(small, smallSnapshot));
+    }
+
+    @Test
+    public void snapshotWithImpossibleScoresIsRejected() {
+        engine.answer(engine.getCorrectSlot());
+        assertTrue(engine.next());
+        int[] snapshot = engine.saveState(); // Question 2 asking, one correct so far
+
+        for (int score = 4; score <= 6; score++) {
+            int[] negative = snapshot.clone();
+            negative[score] = -1;
+            assertNull("negative score " + score, QuizEngine.restore(catalog, negative));
+        }
+
+        // Questions 1 and 2 can account for two scores at most
+        int[] tooMany = snapshot.clone();
+        tooMany[5] = 1;
+        tooMany[6] = 1;
+        assertNull(QuizEngine.restore(catalog, tooMany));
+        int[] overflow = snapshot.clone();
+        overflow[4] = Integer.MAX_VALUE;
+        overflow[5] = Integer.MAX_VALUE;
+        assertNull(QuizEngine.restore(catalog, overflow));
+
+        int[] justEnough = snapshot.clone();
+        justEnough[5] = 1;
+        assertNotNull(QuizEngine.restore(catalog, justEnough));
+    }
+
+    @Test
+    public void finishedSnapshotRestores() {
+        while (engine.next()) {
+            engine.answer(engine.getCorrectSlot());
+        }
+        QuizEngine restored = QuizEngine.restore(catalog, engine.saveState());
+        assertNotNull(restored);
+        assertTrue(restored.isFinished());
+        assertEquals(plan.size(), restored.getQuestionIndex());
+        assertEquals(engine.getCorrectCount(), restored.getCorrectCount());
+        assertEquals(1, restored.getSkippedCount());
+
+        int[] pastTheEnd = engine.saveState();
+        pastTheEnd[1] = plan.size() + 1;
+        assertNull(QuizEngine.restore(catalog, pastTheEnd));
+    }
+}
@@ -0,0 +1,83 @@
+package com.tds.flagquiz;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FlagSimilarityIndex} and {@link SimilarDistractors}, run on the JVM.
+ */
+public class SimilarDistractorsTest {
+
+    private FlagCatalog catalog;
+
+    @Before
+    public void setUp() {
+        int[] ids = {10, 20, 30, 40, 50, 60};
+        String[] names = {"a", "b", "c", "d", "e", "f"};
+        catalog = new FlagCatalog(ids, names, names.clone(), new Random(1));
+    }
+
+    // k = 3; flag 10 looks like 20, 30, 40; flag 20 only has one known neighbour
+    private static ByteBuffer index() {
+        int[][] records = {
+                {10, 20, 30, 40},
+                {20, 10, -1, -1},
+                {99, 10, 20, 30}, // Not in the catalog
+        };
+        ByteBuffer buffer = ByteBuffer.allocate(16 + records.length * 16).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(FlagSimilarityIndex.MAGIC).putInt(FlagSimilarityIndex.FORMAT_VERSION)
+                .putInt(records.length).putInt(3);
+        for (int[] record : records) {
+            for (int value : record) {
+                buffer.putInt(value);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Test
+    public void neighboursResolveToCatalogRows() {
+        FlagSimilarityIndex index = FlagSimilarityIndex.read(index());
+        assertEquals(3, index.size());
+        int[] rows = index.toCatalogRows(catalog);
+        assertArrayEquals(new int[]{1, 2, 3}, Arrays.copyOfRange(rows, 0, 3));
+        assertArrayEquals(new int[]{0, -1, -1}, Arrays.copyOfRange(rows, 3, 6));
+        assertArrayEquals(new int[]{-1, -1, -1}, Arrays.copyOfRange(rows, 6, 9));
+    }
+
+    @Test
+    public void picksOnlyNeighboursWhenThereAreEnough() {
+        SimilarDistractors strategy = new SimilarDistractors(FlagSimilarityIndex.read(index()), catalog, new Random(3));
+        int[] out = new int[3];
+        for (int round = 0; round < 20; round++) {
+            assertEquals(3, strategy.pickDistractors(catalog, 0, 3, out));
+            int[] sorted = out.clone();
+            Arrays.sort(sorted);
+            assertArrayEquals(new int[]{1, 2, 3}, sorted);
+        }
+    }
+
+    @Test
+    public void topsUpWithDistinctRandomFlags() {
+        SimilarDistractors strategy = new SimilarDistractors(FlagSimilarityIndex.read(index()), catalog, new Random(5));
+        int[] out = new int[3];
+        for (int round = 0; round < 20; round++) {
+            assertEquals(3, strategy.pickDistractors(catalog, 1, 3, out));
+            assertEquals(0, out[0]); // The one known neighbour comes first
+            assertTrue(out[1] != 1 && out[2] != 1 && out[1] != out[2] && out[1] != 0 && out[2] != 0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOtherFiles() {
+        FlagSimilarityIndex.read(ByteBuffer.wrap(new byte[32]));
+    }
+}